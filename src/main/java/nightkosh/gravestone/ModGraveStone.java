@@ -10,6 +10,7 @@ import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppingEvent;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import nightkosh.gravestone.api.GraveStoneAPI;
 import nightkosh.gravestone.api.IGraveGeneration;
@@ -18,6 +19,9 @@ import nightkosh.gravestone.api.ModInfo;
 import nightkosh.gravestone.capability.BackupStorage;
 import nightkosh.gravestone.capability.Backups;
 import nightkosh.gravestone.capability.IBackups;
+import nightkosh.gravestone.capability.ISpawnTime;
+import nightkosh.gravestone.capability.SpawnTime;
+import nightkosh.gravestone.capability.SpawnTimeStorage;
 import nightkosh.gravestone.config.Config;
 import nightkosh.gravestone.core.CapabilityHandler;
 import nightkosh.gravestone.core.GSTileEntity;
@@ -28,7 +32,10 @@ import nightkosh.gravestone.core.compatibility.Compatibility;
 import nightkosh.gravestone.core.event.EventHandlerNetwork;
 import nightkosh.gravestone.core.event.EventsHandler;
 import nightkosh.gravestone.core.proxy.CommonProxy;
+import nightkosh.gravestone.helper.BiomeGravesCache;
+import nightkosh.gravestone.helper.GraveCreationQueue;
 import nightkosh.gravestone.helper.GraveGenerationHelper;
+import nightkosh.gravestone.helper.GraveUpdateScheduler;
 import nightkosh.gravestone.helper.api.APIGraveGeneration;
 
 /**
@@ -64,6 +71,7 @@ public class ModGraveStone {
         GSTileEntity.registration();
 
         CapabilityManager.INSTANCE.register(IBackups.class, new BackupStorage(), Backups.class);
+        CapabilityManager.INSTANCE.register(ISpawnTime.class, new SpawnTimeStorage(), SpawnTime.class);
     }
 
     @Mod.EventHandler
@@ -71,6 +79,7 @@ public class ModGraveStone {
         // register death event
         MinecraftForge.EVENT_BUS.register(new EventsHandler());
         MinecraftForge.EVENT_BUS.register(new CapabilityHandler());
+        MinecraftForge.EVENT_BUS.register(GraveUpdateScheduler.INSTANCE);
         FMLCommonHandler.instance().bus().register(new EventHandlerNetwork());
 
         NetworkRegistry.INSTANCE.registerGuiHandler(this, new GuiHandler());
@@ -84,5 +93,11 @@ public class ModGraveStone {
     @Mod.EventHandler
     public void serverStarting(FMLServerStartingEvent event) {
         Commands.registration(event);
+        BiomeGravesCache.invalidate();
+    }
+
+    @Mod.EventHandler
+    public void serverStopping(FMLServerStoppingEvent event) {
+        GraveCreationQueue.dropAll();
     }
 }
\ No newline at end of file
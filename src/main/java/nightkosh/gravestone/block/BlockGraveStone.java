@@ -39,13 +39,13 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 import nightkosh.gravestone.ModGraveStone;
 import nightkosh.gravestone.api.grave.EnumGraveType;
 import nightkosh.gravestone.block.enums.EnumGraves;
-import nightkosh.gravestone.config.Config;
 import nightkosh.gravestone.core.GSBlock;
 import nightkosh.gravestone.core.GuiHandler;
 import nightkosh.gravestone.core.Tabs;
 import nightkosh.gravestone.core.logger.GSLogger;
 import nightkosh.gravestone.helper.GraveGenerationHelper;
 import nightkosh.gravestone.helper.GraveStoneHelper;
+import nightkosh.gravestone.helper.GravesIndex;
 import nightkosh.gravestone.inventory.GraveInventory;
 import nightkosh.gravestone.tileentity.TileEntityGraveStone;
 
@@ -70,7 +70,6 @@ public class BlockGraveStone extends BlockContainer {
         this.setHardness(0.5F);
         this.setResistance(5);
         this.setCreativeTab(Tabs.gravesTab);
-        this.setTickRandomly(Config.removeEmptyGraves);
         this.setRegistryName("GSGraveStone");
     }
 
@@ -427,6 +426,11 @@ public class BlockGraveStone extends BlockContainer {
                                 .append(ModGraveStone.proxy.getLocalizedString("item.grave.days"));
                         player.sendMessage(new TextComponentTranslation(ageStr.toString()));
                     }
+
+                    if (te.getDeathTextComponent().getDeathsCount() > 1) {
+                        player.sendMessage(new TextComponentTranslation(ModGraveStone.proxy.getLocalizedString("item.grave.deaths") +
+                                " " + te.getDeathTextComponent().getDeathsCount()));
+                    }
                 }
             }
         }
@@ -456,6 +460,9 @@ public class BlockGraveStone extends BlockContainer {
         if (tileEntity != null) {
             tileEntity.getInventory().dropAllItems();
         }
+        if (!world.isRemote) {
+            GravesIndex.get(world).removeGrave(world, pos);
+        }
 
         super.breakBlock(world, pos, state);
     }
@@ -539,29 +546,6 @@ public class BlockGraveStone extends BlockContainer {
         return itemStack;
     }
 
-    /**
-     * A randomly called display update to be able to add particles or other
-     * items for display
-     */
-    @Override
-    public void updateTick(World world, BlockPos pos, IBlockState state, Random random) {
-        if (Config.removeEmptyGraves) {
-            if (!world.isRemote) {
-                TileEntityGraveStone tileEntity = (TileEntityGraveStone) world.getTileEntity(pos);
-                if (tileEntity != null) {
-                    if (!tileEntity.isSwordGrave() && tileEntity.isEmpty()) {
-                        if (Config.showGravesRemovingMessages) {
-                            GSLogger.logInfoGrave("Remove empty grave at " + pos.getX() + "/" + pos.getY() + "/" + pos.getZ());
-                        }
-
-                        world.removeTileEntity(pos);
-                        world.setBlockToAir(pos);
-                    }
-                }
-            }
-        }
-    }
-
     @Override
     public IBlockState getStateFromMeta(int meta) {
         EnumFacing enumfacing = EnumFacing.getFront(meta);
@@ -199,6 +199,18 @@ public enum EnumGraves implements IBlockEnum {
     // SWORD
     SWORD(null, EnumGraveType.SWORD, EnumGraveMaterial.OTHER);
 
+    private static final EnumGraves[] VALUES = values();
+    // [graveType.ordinal()][material.ordinal()]
+    private static final EnumGraves[][] GRAVES_TABLE = new EnumGraves[EnumGraveType.values().length][EnumGraveMaterial.values().length];
+
+    static {
+        for (EnumGraves grave : VALUES) {
+            EnumGraves[] row = GRAVES_TABLE[grave.getGraveType().ordinal()];
+            if (row[grave.getMaterial().ordinal()] == null) {
+                row[grave.getMaterial().ordinal()] = grave;
+            }
+        }
+    }
 
     private String name;
     private ResourceLocation texture;
@@ -235,15 +247,19 @@ public enum EnumGraves implements IBlockEnum {
      * @param id Grave Id
      */
     public static EnumGraves getById(int id) {
-        if (id < values().length) {
-            return values()[id];
+        if (id >= 0 && id < VALUES.length) {
+            return VALUES[id];
         }
         return STONE_VERTICAL_PLATE;
     }
 
+    /**
+     * Returns the grave with the specified type and material, or STONE_VERTICAL_PLATE if none found.
+     */
     public static EnumGraves getByTypeAndMaterial(EnumGraveType graveType, EnumGraveMaterial material) {
-        for (EnumGraves grave : EnumGraves.values()) {
-            if (grave.getGraveType().equals(graveType) && grave.getMaterial().equals(material)) {
+        if (graveType != null && material != null) {
+            EnumGraves grave = GRAVES_TABLE[graveType.ordinal()][material.ordinal()];
+            if (grave != null) {
                 return grave;
             }
         }
@@ -0,0 +1,16 @@
+package nightkosh.gravestone.capability;
+
+/**
+ * GraveStone mod
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public interface ISpawnTime {
+
+    boolean hasSpawnTime();
+
+    long getSpawnTime();
+
+    void setSpawnTime(long spawnTime);
+}
@@ -0,0 +1,29 @@
+package nightkosh.gravestone.capability;
+
+/**
+ * GraveStone mod
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class SpawnTime implements ISpawnTime {
+
+    private boolean hasSpawnTime = false;
+    private long spawnTime = 0;
+
+    @Override
+    public boolean hasSpawnTime() {
+        return hasSpawnTime;
+    }
+
+    @Override
+    public long getSpawnTime() {
+        return spawnTime;
+    }
+
+    @Override
+    public void setSpawnTime(long spawnTime) {
+        this.spawnTime = spawnTime;
+        this.hasSpawnTime = true;
+    }
+}
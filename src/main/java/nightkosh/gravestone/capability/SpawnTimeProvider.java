@@ -0,0 +1,40 @@
+package nightkosh.gravestone.capability;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.util.EnumFacing;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.CapabilityInject;
+import net.minecraftforge.common.capabilities.ICapabilitySerializable;
+
+/**
+ * GraveStone mod
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class SpawnTimeProvider implements ICapabilitySerializable<NBTBase> {
+
+    @CapabilityInject(ISpawnTime.class)
+    public static final Capability<ISpawnTime> SPAWN_TIME_CAP = null;
+    private ISpawnTime instance = SPAWN_TIME_CAP.getDefaultInstance();
+
+    @Override
+    public boolean hasCapability(Capability<?> capability, EnumFacing facing) {
+        return capability == SPAWN_TIME_CAP;
+    }
+
+    @Override
+    public <T> T getCapability(Capability<T> capability, EnumFacing facing) {
+        return capability == SPAWN_TIME_CAP ? SPAWN_TIME_CAP.<T>cast(this.instance) : null;
+    }
+
+    @Override
+    public NBTBase serializeNBT() {
+        return SPAWN_TIME_CAP.getStorage().writeNBT(SPAWN_TIME_CAP, this.instance, null);
+    }
+
+    @Override
+    public void deserializeNBT(NBTBase nbt) {
+        SPAWN_TIME_CAP.getStorage().readNBT(SPAWN_TIME_CAP, this.instance, null, nbt);
+    }
+}
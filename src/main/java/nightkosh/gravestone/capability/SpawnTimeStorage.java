@@ -0,0 +1,36 @@
+package nightkosh.gravestone.capability;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.EnumFacing;
+import net.minecraftforge.common.capabilities.Capability;
+
+import javax.annotation.Nullable;
+
+/**
+ * GraveStone mod
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class SpawnTimeStorage implements Capability.IStorage<ISpawnTime> {
+
+    @Nullable
+    @Override
+    public NBTBase writeNBT(Capability<ISpawnTime> capability, ISpawnTime spawnTime, EnumFacing side) {
+        NBTTagCompound nbt = new NBTTagCompound();
+
+        if (spawnTime.hasSpawnTime()) {
+            nbt.setLong("SpawnTime", spawnTime.getSpawnTime());
+        }
+
+        return nbt;
+    }
+
+    @Override
+    public void readNBT(Capability<ISpawnTime> capability, ISpawnTime spawnTime, EnumFacing side, NBTBase nbt) {
+        if (((NBTTagCompound) nbt).hasKey("SpawnTime")) {
+            spawnTime.setSpawnTime(((NBTTagCompound) nbt).getLong("SpawnTime"));
+        }
+    }
+}
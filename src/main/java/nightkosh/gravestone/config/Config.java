@@ -1,13 +1,20 @@
 package nightkosh.gravestone.config;
 
+import net.minecraftforge.common.BiomeDictionary;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.common.config.Property;
+import nightkosh.gravestone.api.grave.EnumGraveMaterial;
+import nightkosh.gravestone.core.logger.GSLogger;
+import nightkosh.gravestone.helper.DamageTypeClassifier;
 import nightkosh.gravestone.helper.GraveStoneHelper;
+import nightkosh.gravestone.helper.RestrictedAreasIndex;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * GraveStone mod
@@ -52,6 +59,7 @@ public class Config {
     public static boolean generatePetGraves;
     public static boolean generateGravesInLava;
     public static int graveItemsCount;
+    public static boolean compactGravesItems;
     public static boolean canPlaceGravesEveryWhere;
     public static boolean generateSwordGraves;
     public static boolean removeEmptyGraves;
@@ -63,8 +71,20 @@ public class Config {
     public static boolean dropGraveBlockAtDestruction;
     public static List<Integer> playerGravesDimensionalBlackList;
     public static boolean createBackups;
+    public static int maxGravePlacementBlockReads;
+    public static boolean placeGravesOnlyInLoadedChunks;
+    public static boolean deferGravesCreation;
+    public static int maxGravesCreatedPerTick;
+    public static int gravesCreationTimeBudget;
+    public static int gravesSweeperChecksPerTick;
+    public static int emptyGravesLifetime;
+    public static int gravesWithLootLifetime;
+    public static int petGravesLifetime;
+    public static int releaseGraveItemsAfterDays;
+    public static int gravesMergeRadius;
 
     public static List<GraveStoneHelper.RestrictedArea> restrictGraveGenerationInArea;
+    public static Map<BiomeDictionary.Type, List<EnumGraveMaterial>> biomeTypesGravesMaterials;
 
     private static void gravesConfig() {
         canPlaceGravesEveryWhere = config.get(CATEGORY_GRAVES, "AllowToPlaceGravesEveryWhere", false).getBoolean(false);
@@ -86,7 +106,13 @@ public class Config {
             graveItemsCount = 100;
         }
 
-        removeEmptyGraves = config.get(CATEGORY_GRAVES, "RemoveEmptyGraves", false).getBoolean(false);
+        Property compactGravesItemsProperty = config.get(CATEGORY_GRAVES, "CompactGravesItems", false);
+        compactGravesItemsProperty.setComment("If enabled equal stackable items will be merged in to full stacks before saving in grave.");
+        compactGravesItems = compactGravesItemsProperty.getBoolean();
+
+        Property removeEmptyGravesProperty = config.get(CATEGORY_GRAVES, "RemoveEmptyGraves", false);
+        removeEmptyGravesProperty.setComment("If enabled empty graves in loaded chunks will be removed by the graves sweeper.");
+        removeEmptyGraves = removeEmptyGravesProperty.getBoolean();
         showGravesRemovingMessages = config.get(CATEGORY_GRAVES, "ShowGravesRemovingMessages", true).getBoolean(true);
         dropGraveBlockAtDestruction = config.get(CATEGORY_GRAVES, "DropGraveBlockAtDestruction", true).getBoolean(true);
 
@@ -104,11 +130,99 @@ public class Config {
                 restrictGraveGenerationInArea.add(restrictedArea);
             }
         }
+        RestrictedAreasIndex.setAreas(restrictGraveGenerationInArea);
+
+        Property biomeTypesGravesMaterialsProperty = config.get(CATEGORY_GRAVES, "BiomeTypesGravesMaterials", "");
+        biomeTypesGravesMaterialsProperty.setComment("Additional graves materials for biome types. \"biome_type:material,material;\". For example \"SPOOKY:OBSIDIAN;MAGICAL:LAPIS,DIAMOND\"");
+        biomeTypesGravesMaterials = getBiomeTypesGravesMaterials(biomeTypesGravesMaterialsProperty.getString());
+
+        Property damageTypesCategoriesProperty = config.get(CATEGORY_GRAVES, "DamageTypesCategories", "");
+        damageTypesCategoriesProperty.setComment("Additional rules for damage types classification. \"regex:category,category;\". Categories: FIRE, LAVA, MAGIC, BLAST, FIREBALL, ARROW. For example \"^thaumcraft\\.fire:FIRE;plasma:FIRE,BLAST\"");
+        DamageTypeClassifier.setCustomRules(damageTypesCategoriesProperty.getString());
 
         playerGravesDimensionalBlackList = ConfigsHelper.getDimensionList(config, CATEGORY_GRAVES, "PlayerGravesDimensionalBlackList", "",
                 "List of dimension ids in which player's graves will not be generated at death");
 
         createBackups = config.get(CATEGORY_GRAVES, "CreateBackups", true).getBoolean();
+
+        Property maxGravePlacementBlockReadsProperty = config.get(CATEGORY_GRAVES, "MaxGravePlacementBlockReads", 16384);
+        maxGravePlacementBlockReadsProperty.setComment("Maximal amount of blocks which can be checked while searching place for grave at death. If no place was found grave item will be dropped.");
+        maxGravePlacementBlockReads = maxGravePlacementBlockReadsProperty.getInt();
+
+        Property placeGravesOnlyInLoadedChunksProperty = config.get(CATEGORY_GRAVES, "PlaceGravesOnlyInLoadedChunks", false);
+        placeGravesOnlyInLoadedChunksProperty.setComment("If enabled search of place for grave will not load chunks. Graves which must be created in unloaded chunks by other mods will be created when these chunks will be loaded.");
+        placeGravesOnlyInLoadedChunks = placeGravesOnlyInLoadedChunksProperty.getBoolean();
+
+        Property deferGravesCreationProperty = config.get(CATEGORY_GRAVES, "DeferGravesCreation", true);
+        deferGravesCreationProperty.setComment("If enabled graves will be created at the end of the server tick instead of the death moment. Amount of graves created per tick is limited by \"MaxGravesCreatedPerTick\" and \"GravesCreationTimeBudget\".");
+        deferGravesCreation = deferGravesCreationProperty.getBoolean();
+
+        Property maxGravesCreatedPerTickProperty = config.get(CATEGORY_GRAVES, "MaxGravesCreatedPerTick", 5);
+        maxGravesCreatedPerTickProperty.setComment("Maximal amount of graves which can be created per tick. Players graves are created first.");
+        maxGravesCreatedPerTick = Math.max(maxGravesCreatedPerTickProperty.getInt(), 1);
+
+        Property gravesCreationTimeBudgetProperty = config.get(CATEGORY_GRAVES, "GravesCreationTimeBudget", 5);
+        gravesCreationTimeBudgetProperty.setComment("Maximal time in milliseconds which can be spent on graves creation per tick. At least one grave will be created every tick.");
+        gravesCreationTimeBudget = Math.max(gravesCreationTimeBudgetProperty.getInt(), 0);
+
+        Property gravesSweeperChecksPerTickProperty = config.get(CATEGORY_GRAVES, "GravesSweeperChecksPerTick", 20);
+        gravesSweeperChecksPerTickProperty.setComment("Amount of graves which are checked by the graves sweeper per tick in each world.");
+        gravesSweeperChecksPerTick = Math.max(gravesSweeperChecksPerTickProperty.getInt(), 1);
+
+        Property emptyGravesLifetimeProperty = config.get(CATEGORY_GRAVES, "EmptyGravesLifetime", 0);
+        emptyGravesLifetimeProperty.setComment("Amount of minecraft days after which empty graves will be removed. 0 - graves will not be removed.");
+        emptyGravesLifetime = Math.max(emptyGravesLifetimeProperty.getInt(), 0);
+
+        Property gravesWithLootLifetimeProperty = config.get(CATEGORY_GRAVES, "GravesWithLootLifetime", 0);
+        gravesWithLootLifetimeProperty.setComment("Amount of minecraft days after which graves with items will be removed (items will be dropped). 0 - graves will not be removed.");
+        gravesWithLootLifetime = Math.max(gravesWithLootLifetimeProperty.getInt(), 0);
+
+        Property petGravesLifetimeProperty = config.get(CATEGORY_GRAVES, "PetGravesLifetime", 0);
+        petGravesLifetimeProperty.setComment("Amount of minecraft days after which pets graves will be removed. 0 - graves will not be removed.");
+        petGravesLifetime = Math.max(petGravesLifetimeProperty.getInt(), 0);
+
+        Property releaseGraveItemsAfterDaysProperty = config.get(CATEGORY_GRAVES, "ReleaseGraveItemsAfterDays", 0);
+        releaseGraveItemsAfterDaysProperty.setComment("Amount of minecraft days after which items of graves can be looted by any player even if \"OnlyOwnerCanLootGrave\" is enabled. 0 - disabled.");
+        releaseGraveItemsAfterDays = Math.max(releaseGraveItemsAfterDaysProperty.getInt(), 0);
+
+        Property gravesMergeRadiusProperty = config.get(CATEGORY_GRAVES, "GravesMergeRadius", 0);
+        gravesMergeRadiusProperty.setComment("If player dies in this radius of his existing grave items will be added to this grave instead of creation of a new one. Only graves in loaded chunks are used. 0 - disabled.");
+        gravesMergeRadius = Math.max(gravesMergeRadiusProperty.getInt(), 0);
+    }
+
+
+    private static Map<BiomeDictionary.Type, List<EnumGraveMaterial>> getBiomeTypesGravesMaterials(String str) {
+        Map<BiomeDictionary.Type, List<EnumGraveMaterial>> map = new LinkedHashMap<>();
+        for (String biomeTypeStr : str.split(";")) {
+            String[] biomeTypeMaterials = biomeTypeStr.split(":");
+            if (biomeTypeMaterials.length == 2 && !biomeTypeMaterials[0].trim().isEmpty()) {
+                BiomeDictionary.Type biomeType = getBiomeType(biomeTypeMaterials[0].trim());
+                if (biomeType == null) {
+                    GSLogger.logError("Unknown biome type " + biomeTypeMaterials[0]);
+                    continue;
+                }
+                for (String materialStr : biomeTypeMaterials[1].split(",")) {
+                    try {
+                        map.computeIfAbsent(biomeType, type -> new ArrayList<>()).add(EnumGraveMaterial.valueOf(materialStr.trim().toUpperCase()));
+                    } catch (IllegalArgumentException e) {
+                        GSLogger.logError("Unknown grave material " + materialStr);
+                    }
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Returns existing biome type - Type.getType creates a new type for unknown names
+     */
+    private static BiomeDictionary.Type getBiomeType(String name) {
+        for (BiomeDictionary.Type type : BiomeDictionary.Type.getAll()) {
+            if (type.getName().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
     }
 
 
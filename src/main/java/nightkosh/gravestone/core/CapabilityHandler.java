@@ -1,12 +1,17 @@
 package nightkosh.gravestone.core;
 
 import net.minecraft.entity.Entity;
+import net.minecraft.entity.passive.AbstractHorse;
+import net.minecraft.entity.passive.EntityOcelot;
+import net.minecraft.entity.passive.EntityVillager;
+import net.minecraft.entity.passive.EntityWolf;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.event.AttachCapabilitiesEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import nightkosh.gravestone.api.ModInfo;
 import nightkosh.gravestone.capability.BackupProvider;
+import nightkosh.gravestone.capability.SpawnTimeProvider;
 
 /**
  * GraveStone mod
@@ -16,11 +21,26 @@ import nightkosh.gravestone.capability.BackupProvider;
  */
 public class CapabilityHandler {
     public static final ResourceLocation BACKUP_CAP = new ResourceLocation(ModInfo.ID, "backup");
+    public static final ResourceLocation SPAWN_TIME_CAP = new ResourceLocation(ModInfo.ID, "spawn_time");
 
     @SubscribeEvent
     public void attachPlayerCapability(AttachCapabilitiesEvent<Entity> event) {
         if (event.getObject() instanceof EntityPlayer) {
             event.addCapability(BACKUP_CAP, new BackupProvider());
         }
+        if (isSpawnTimeTracked(event.getObject())) {
+            event.addCapability(SPAWN_TIME_CAP, new SpawnTimeProvider());
+        }
+    }
+
+    /**
+     * Entities which can get grave with age
+     */
+    public static boolean isSpawnTimeTracked(Entity entity) {
+        return entity instanceof EntityPlayer ||
+                entity instanceof EntityVillager ||
+                entity instanceof EntityWolf ||
+                entity instanceof EntityOcelot ||
+                entity instanceof AbstractHorse;
     }
 }
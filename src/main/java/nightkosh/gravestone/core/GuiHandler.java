@@ -26,7 +26,7 @@ public class GuiHandler implements IGuiHandler {
             case GRAVE_INVENTORY_GUI_ID:
                 tileEntity = world.getTileEntity(new BlockPos(x, y, z));
                 if (tileEntity instanceof TileEntityGraveStone) {
-                    return new GraveContainer(player.inventory, (TileEntityGraveStone) tileEntity);
+                    return new GraveContainer(player.inventory, ((TileEntityGraveStone) tileEntity).getInventory());
                 }
                 break;
         }
@@ -40,7 +40,7 @@ public class GuiHandler implements IGuiHandler {
             case GRAVE_INVENTORY_GUI_ID:
                 tileEntity = world.getTileEntity(new BlockPos(x, y, z));
                 if (tileEntity instanceof TileEntityGraveStone) {
-                    return new GraveInventoryGui(player.inventory, (TileEntityGraveStone) tileEntity);
+                    return new GraveInventoryGui(player.inventory);
                 }
                 break;
         }
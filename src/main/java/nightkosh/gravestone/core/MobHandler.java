@@ -1,90 +1,196 @@
 package nightkosh.gravestone.core;
 
-import com.google.common.io.Files;
+import nightkosh.gravestone.capability.ISpawnTime;
+import nightkosh.gravestone.capability.SpawnTimeProvider;
 import nightkosh.gravestone.core.logger.GSLogger;
 import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.world.World;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * GraveStone mod
  *
+ * Spawn time of villagers, pets and players is stored in the ISpawnTime capability of the entity.
+ * Global spawn time file is used only for entities without this capability and for import of old data -
+ * spawn time of entity is moved from the file to the capability at the first access.
+ *
+ * Spawn time file is stored as a snapshot and an append-only journal of changes.
+ * Changes are written to the journal only at world save or once per FLUSH_INTERVAL ticks
+ * and the journal is compacted into a new snapshot in the background.
+ * Both files store entity UUID as two longs. Old NBT based files are loaded if there are no new files yet.
+ *
  * @author NightKosh
  * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
  */
 public class MobHandler {
-    public static final String MOBS_SPAWN_TIME_FILE_NAME = "mobsSpawnTime.gs";
-    public static final String MOBS_SPAWN_TIME_BACKUP_FILE_NAME = "mobsSpawnTimeBackup.gs";
+    public static final String MOBS_SPAWN_TIME_FILE_NAME = "mobsSpawnTimeV2.gs";
+    public static final String MOBS_SPAWN_TIME_BACKUP_FILE_NAME = "mobsSpawnTimeV2Backup.gs";
+    public static final String MOBS_SPAWN_TIME_JOURNAL_FILE_NAME = "mobsSpawnTimeV2.journal";
+    private static final String MOBS_SPAWN_TIME_TEMP_FILE_NAME = "mobsSpawnTimeV2.tmp";
+    // NBT based files with string ids
+    public static final String LEGACY_MOBS_SPAWN_TIME_FILE_NAME = "mobsSpawnTime.gs";
+    public static final String LEGACY_MOBS_SPAWN_TIME_BACKUP_FILE_NAME = "mobsSpawnTimeBackup.gs";
+
+    private static final int SNAPSHOT_FORMAT_VERSION = 1;
+
+    private static final int FLUSH_INTERVAL = 6000;
+    private static final int MIN_JOURNAL_SIZE_TO_COMPACT = 1000;
 
-    private static HashMap<String, Long> mobsSpawnTime = new HashMap<>();
+    private static final byte JOURNAL_PUT = 0;
+    private static final byte JOURNAL_REMOVE = 1;
 
-    public static void clearMobsSpawnTime(Entity entity) {
-        mobsSpawnTime.remove(entity.getUniqueID().toString());
-        saveMobsSpawnTime(entity.getEntityWorld());
+    private static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GraveStone spawn time IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static SpawnTimeMap mobsSpawnTime = new SpawnTimeMap();
+    private static List<JournalEntry> pendingEntries = new ArrayList<>();
+    private static int journalSize = 0;
+    private static boolean isCompactionRequired = false;
+    private static int ticksFromLastFlush = 0;
+    private static File worldDirectory;
+
+    /**
+     * Removes spawn time of the entity from the global spawn time file. Spawn time stored in the capability is removed with the entity.
+     */
+    public static void clearLegacySpawnTime(Entity entity) {
+        removeLegacySpawnTime(entity.getUniqueID());
     }
 
-    public static long getAndRemoveSpawnTime(Entity entity) {
-        if (mobsSpawnTime.containsKey(entity.getUniqueID().toString())) {
-            long time = mobsSpawnTime.get(entity.getUniqueID().toString());
-            clearMobsSpawnTime(entity);
-            return time;
+    /**
+     * Returns spawn time of the dead entity. Spawn time from the global file is removed from it,
+     * spawn time from the capability is kept - it is removed with the entity.
+     */
+    public static long getSpawnTimeForDeath(Entity entity) {
+        ISpawnTime spawnTime = getSpawnTimeCapability(entity);
+        if (spawnTime != null && spawnTime.hasSpawnTime()) {
+            return spawnTime.getSpawnTime();
+        }
+        UUID id = entity.getUniqueID();
+        if (mobsSpawnTime.containsKey(id)) {
+            return removeLegacySpawnTime(id);
         } else {
             return entity.getEntityWorld().getWorldTime();
         }
     }
 
     public static long getMobSpawnTime(Entity entity) {
-        if (!mobsSpawnTime.containsKey(entity.getUniqueID().toString())) {
-            mobsSpawnTime.put(entity.getUniqueID().toString(), entity.getEntityWorld().getWorldTime());
-            saveMobsSpawnTime(entity.getEntityWorld());
+        ISpawnTime spawnTime = getSpawnTimeCapability(entity);
+        if (spawnTime != null) {
+            setMobSpawnTime(entity, spawnTime);
+            return spawnTime.getSpawnTime();
+        }
+        UUID id = entity.getUniqueID();
+        if (mobsSpawnTime.containsKey(id)) {
+            return mobsSpawnTime.get(id, 0);
+        } else {
+            long time = entity.getEntityWorld().getWorldTime();
+            putSpawnTime(id, time);
+            return time;
         }
-        return mobsSpawnTime.get(entity.getUniqueID().toString());
     }
 
     public static void setMobSpawnTime(Entity entity) {
-        if (!mobsSpawnTime.containsKey(entity.getUniqueID().toString())) {
-            mobsSpawnTime.put(entity.getUniqueID().toString(), entity.getEntityWorld().getWorldTime());
-            saveMobsSpawnTime(entity.getEntityWorld());
+        ISpawnTime spawnTime = getSpawnTimeCapability(entity);
+        if (spawnTime != null) {
+            setMobSpawnTime(entity, spawnTime);
+        } else {
+            UUID id = entity.getUniqueID();
+            if (!mobsSpawnTime.containsKey(id)) {
+                putSpawnTime(id, entity.getEntityWorld().getWorldTime());
+            }
+        }
+    }
+
+    /**
+     * Sets spawn time if it was not set yet. Spawn time of entities from the old global file is moved to the capability
+     */
+    private static void setMobSpawnTime(Entity entity, ISpawnTime spawnTime) {
+        if (!spawnTime.hasSpawnTime()) {
+            UUID id = entity.getUniqueID();
+            if (mobsSpawnTime.containsKey(id)) {
+                spawnTime.setSpawnTime(removeLegacySpawnTime(id));
+            } else {
+                spawnTime.setSpawnTime(entity.getEntityWorld().getWorldTime());
+            }
+        }
+    }
+
+    /**
+     * Player entity is recreated at respawn and at return from the End.
+     * Spawn time must be kept only in the last case.
+     */
+    public static void clonePlayer(EntityPlayer playerOld, EntityPlayer playerNew, boolean isWasDeath) {
+        if (!isWasDeath) {
+            ISpawnTime spawnTimeOld = getSpawnTimeCapability(playerOld);
+            ISpawnTime spawnTimeNew = getSpawnTimeCapability(playerNew);
+            if (spawnTimeOld != null && spawnTimeNew != null && spawnTimeOld.hasSpawnTime()) {
+                spawnTimeNew.setSpawnTime(spawnTimeOld.getSpawnTime());
+            }
+        }
+    }
+
+    private static ISpawnTime getSpawnTimeCapability(Entity entity) {
+        if (entity.hasCapability(SpawnTimeProvider.SPAWN_TIME_CAP, null)) {
+            return entity.getCapability(SpawnTimeProvider.SPAWN_TIME_CAP, null);
+        }
+        return null;
+    }
+
+    private static long removeLegacySpawnTime(UUID id) {
+        if (mobsSpawnTime.containsKey(id)) {
+            pendingEntries.add(new JournalEntry(JOURNAL_REMOVE, id, 0));
+            return mobsSpawnTime.remove(id, 0);
         }
+        return 0;
+    }
+
+    private static void putSpawnTime(UUID id, long time) {
+        mobsSpawnTime.put(id, time);
+        pendingEntries.add(new JournalEntry(JOURNAL_PUT, id, time));
     }
 
     public static void loadMobsSpawnTime(World world) {
+        File directory = world.getSaveHandler().getWorldDirectory();
+        if (directory.equals(worldDirectory)) {
+            return;
+        }
+        mobsSpawnTime = new SpawnTimeMap();
+        pendingEntries = new ArrayList<>();
+        journalSize = 0;
+        isCompactionRequired = false;
+        ticksFromLastFlush = 0;
+        worldDirectory = directory;
+
         try {
-            File file = new File(world.getSaveHandler().getWorldDirectory(), MOBS_SPAWN_TIME_FILE_NAME);
-            File backup = new File(world.getSaveHandler().getWorldDirectory(), MOBS_SPAWN_TIME_BACKUP_FILE_NAME);
+            File file = new File(directory, MOBS_SPAWN_TIME_FILE_NAME);
+            File backup = new File(directory, MOBS_SPAWN_TIME_BACKUP_FILE_NAME);
+            File journal = new File(directory, MOBS_SPAWN_TIME_JOURNAL_FILE_NAME);
 
-            NBTTagCompound data = null;
-            boolean save = false;
-            if (file != null && file.exists()) {
-                data = getDataFromFile(file);
-            }
-            if (file == null || !file.exists() || data == null || data.hasNoTags()) {
-                GSLogger.logError("Data not found. Trying to load backup data.");
-                if (backup != null && backup.exists()) {
-                    data = getDataFromFile(backup);
-                    save = true;
-                }
-            }
-            if (data != null) {
-                Set keySet = data.getKeySet();
-                Iterator it = keySet.iterator();
-                while (it.hasNext()) {
-                    String tagName = (String) it.next();
-                    mobsSpawnTime.put(tagName, data.getLong(tagName));
-                }
-                if (save) {
-                    saveMobsSpawnTime(world);
+            if (file.exists() || backup.exists() || journal.exists()) {
+                if (!readSnapshot(file) && backup.exists()) {
+                    GSLogger.logError("Data not found. Trying to load backup data.");
+                    readSnapshot(backup);
                 }
+                journalSize = readJournal(journal);
+            } else {
+                loadLegacyMobsSpawnTime(directory);
             }
         } catch (Exception e) {
             GSLogger.logError("Error loading mobs spawn time");
@@ -92,45 +198,204 @@ public class MobHandler {
         }
     }
 
+    private static void loadLegacyMobsSpawnTime(File directory) {
+        File file = new File(directory, LEGACY_MOBS_SPAWN_TIME_FILE_NAME);
+        File backup = new File(directory, LEGACY_MOBS_SPAWN_TIME_BACKUP_FILE_NAME);
+
+        NBTTagCompound data = null;
+        if (file.exists()) {
+            data = getDataFromFile(file);
+        }
+        if (data == null || data.hasNoTags()) {
+            if (backup.exists()) {
+                data = getDataFromFile(backup);
+            }
+        }
+        if (data != null) {
+            for (String tagName : data.getKeySet()) {
+                try {
+                    mobsSpawnTime.put(UUID.fromString(tagName), data.getLong(tagName));
+                } catch (IllegalArgumentException e) {
+                    GSLogger.logError("Wrong mob id in spawn time file: " + tagName);
+                }
+            }
+        }
+
+        // write new snapshot at the first flush
+        isCompactionRequired = !mobsSpawnTime.isEmpty();
+    }
+
+    /**
+     * Called at the end of every server tick
+     */
+    public static void onServerTick() {
+        if (++ticksFromLastFlush >= FLUSH_INTERVAL) {
+            flush();
+        }
+    }
+
     public static void saveMobsSpawnTime(World world) {
-        if (world != null && !world.isRemote && mobsSpawnTime != null) {
+        if (world != null && !world.isRemote) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all changes and waits for background writing. Should be called at world unloading.
+     */
+    public static void unloadMobsSpawnTime(World world) {
+        if (world != null && !world.isRemote && worldDirectory != null) {
+            flush();
             try {
-                File file = new File(world.getSaveHandler().getWorldDirectory(), MOBS_SPAWN_TIME_FILE_NAME);
-                File backup = new File(world.getSaveHandler().getWorldDirectory(), MOBS_SPAWN_TIME_BACKUP_FILE_NAME);
-
-                if (file != null && file.exists()) {
-                    try {
-                        Files.copy(file, backup);
-                    } catch (Exception e) {
-                        GSLogger.logError("Could not backup old spawn time file");
-                    }
+                IO_EXECUTOR.submit(() -> {
+                }).get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                GSLogger.logError("Error while waiting for mobs spawn time saving");
+                e.printStackTrace();
+            }
+            worldDirectory = null;
+            mobsSpawnTime = new SpawnTimeMap();
+            pendingEntries = new ArrayList<>();
+        }
+    }
+
+    private static void flush() {
+        ticksFromLastFlush = 0;
+        if (worldDirectory == null || (pendingEntries.isEmpty() && !isCompactionRequired)) {
+            return;
+        }
+        final File directory = worldDirectory;
+        final List<JournalEntry> entries = pendingEntries;
+        pendingEntries = new ArrayList<>();
+
+        journalSize += entries.size();
+        final SpawnTimeMap snapshot;
+        if (isCompactionRequired || (journalSize >= MIN_JOURNAL_SIZE_TO_COMPACT && journalSize >= mobsSpawnTime.size())) {
+            snapshot = mobsSpawnTime.copy();
+            journalSize = 0;
+            isCompactionRequired = false;
+        } else {
+            snapshot = null;
+        }
+
+        IO_EXECUTOR.execute(() -> {
+            writeJournal(new File(directory, MOBS_SPAWN_TIME_JOURNAL_FILE_NAME), entries);
+            if (snapshot != null) {
+                compact(directory, snapshot);
+            }
+        });
+    }
+
+    private static boolean readSnapshot(File file) {
+        if (file.exists()) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+                int version = input.readInt();
+                if (version != SNAPSHOT_FORMAT_VERSION) {
+                    GSLogger.logError("Unknown format version " + version + " of mobs spawn time file " + file.getName());
+                    return false;
                 }
-                try {
-                    if (file != null) {
-                        NBTTagCompound data = new NBTTagCompound();
-                        for (Map.Entry<String, Long> entry : mobsSpawnTime.entrySet()) {
-                            if (entry != null) {
-                                data.setLong(entry.getKey(), entry.getValue());
-                            }
-                        }
-                        FileOutputStream fileoutputstream = new FileOutputStream(file);
-                        CompressedStreamTools.writeCompressed(data, fileoutputstream);
-                        fileoutputstream.close();
+                int count = input.readInt();
+                if (count < 0) {
+                    GSLogger.logError("Wrong records count in mobs spawn time file " + file.getName());
+                    return false;
+                }
+                SpawnTimeMap map = new SpawnTimeMap(count);
+                for (int i = 0; i < count; i++) {
+                    map.put(input.readLong(), input.readLong(), input.readLong());
+                }
+                mobsSpawnTime = map;
+                return true;
+            } catch (IOException e) {
+                GSLogger.logError("Error reading mobs spawn time file " + file.getName());
+                e.printStackTrace();
+            }
+        }
+        return false;
+    }
+
+    private static int readJournal(File journal) {
+        int count = 0;
+        if (journal.exists()) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+                while (true) {
+                    byte type = input.readByte();
+                    long most = input.readLong();
+                    long least = input.readLong();
+                    if (type == JOURNAL_PUT) {
+                        mobsSpawnTime.put(most, least, input.readLong());
+                    } else {
+                        mobsSpawnTime.remove(most, least, 0);
                     }
-                } catch (Exception e) {
-                    GSLogger.logError("Could not save spawn time file");
-                    e.printStackTrace();
-                    if (file.exists()) {
+                    count++;
+                }
+            } catch (EOFException e) {
+                // end of journal or last entry was not completely written
+            } catch (IOException e) {
+                GSLogger.logError("Error reading mobs spawn time journal");
+                e.printStackTrace();
+            }
+        }
+        return count;
+    }
+
+    private static void writeJournal(File journal, List<JournalEntry> entries) {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journal, true)))) {
+            for (JournalEntry entry : entries) {
+                output.writeByte(entry.type);
+                output.writeLong(entry.id.getMostSignificantBits());
+                output.writeLong(entry.id.getLeastSignificantBits());
+                if (entry.type == JOURNAL_PUT) {
+                    output.writeLong(entry.time);
+                }
+            }
+        } catch (IOException e) {
+            GSLogger.logError("Could not write mobs spawn time journal");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes snapshot of all spawn times and removes the journal. Journal entries which were written before
+     * are already in the snapshot, so crash between these steps is safe.
+     */
+    private static void compact(File directory, SpawnTimeMap snapshot) {
+        File file = new File(directory, MOBS_SPAWN_TIME_FILE_NAME);
+        File backup = new File(directory, MOBS_SPAWN_TIME_BACKUP_FILE_NAME);
+        File temp = new File(directory, MOBS_SPAWN_TIME_TEMP_FILE_NAME);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp))))) {
+                output.writeInt(SNAPSHOT_FORMAT_VERSION);
+                output.writeInt(snapshot.size());
+                IOException[] exception = new IOException[1];
+                snapshot.forEach((most, least, time) -> {
+                    if (exception[0] == null) {
                         try {
-                            file.delete();
-                        } catch (Exception e2) {
+                            output.writeLong(most);
+                            output.writeLong(least);
+                            output.writeLong(time);
+                        } catch (IOException e) {
+                            exception[0] = e;
                         }
                     }
+                });
+                if (exception[0] != null) {
+                    throw exception[0];
                 }
-            } catch (Exception e) {
-                GSLogger.logError("Error saving mobs spawn time");
-                e.printStackTrace();
             }
+
+            if (file.exists()) {
+                try {
+                    Files.copy(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } catch (Exception e) {
+                    GSLogger.logError("Could not backup old spawn time file");
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            Files.deleteIfExists(new File(directory, MOBS_SPAWN_TIME_JOURNAL_FILE_NAME).toPath());
+        } catch (Exception e) {
+            GSLogger.logError("Could not save spawn time file");
+            e.printStackTrace();
         }
     }
 
@@ -145,4 +410,16 @@ public class MobHandler {
         }
         return data;
     }
+
+    private static class JournalEntry {
+        private final byte type;
+        private final UUID id;
+        private final long time;
+
+        public JournalEntry(byte type, UUID id, long time) {
+            this.type = type;
+            this.id = id;
+            this.time = time;
+        }
+    }
 }
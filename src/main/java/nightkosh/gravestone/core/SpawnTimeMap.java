@@ -0,0 +1,197 @@
+package nightkosh.gravestone.core;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * GraveStone mod
+ *
+ * Open addressing (linear probing) map from entity UUID to spawn time.
+ * UUID is stored as two longs and values are primitive, so lookups don't allocate anything.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class SpawnTimeMap {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.6F;
+
+    private long[] mostSigBits;
+    private long[] leastSigBits;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int resizeThreshold;
+
+    public SpawnTimeMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpawnTimeMap(int expectedSize) {
+        allocate(getCapacity(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(UUID id) {
+        return containsKey(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    public boolean containsKey(long most, long least) {
+        return indexOf(most, least) >= 0;
+    }
+
+    public long get(UUID id, long defaultValue) {
+        return get(id.getMostSignificantBits(), id.getLeastSignificantBits(), defaultValue);
+    }
+
+    public long get(long most, long least, long defaultValue) {
+        int index = indexOf(most, least);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    public void put(UUID id, long value) {
+        put(id.getMostSignificantBits(), id.getLeastSignificantBits(), value);
+    }
+
+    public void put(long most, long least, long value) {
+        int mask = used.length - 1;
+        int index = hash(most, least) & mask;
+        while (used[index]) {
+            if (mostSigBits[index] == most && leastSigBits[index] == least) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        used[index] = true;
+        mostSigBits[index] = most;
+        leastSigBits[index] = least;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(used.length * 2);
+        }
+    }
+
+    /**
+     * Removes the mapping and returns it's value or defaultValue if there was no mapping
+     */
+    public long remove(UUID id, long defaultValue) {
+        return remove(id.getMostSignificantBits(), id.getLeastSignificantBits(), defaultValue);
+    }
+
+    public long remove(long most, long least, long defaultValue) {
+        int index = indexOf(most, least);
+        if (index < 0) {
+            return defaultValue;
+        }
+        long value = values[index];
+        deleteAt(index);
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                consumer.accept(mostSigBits[i], leastSigBits[i], values[i]);
+            }
+        }
+    }
+
+    public SpawnTimeMap copy() {
+        SpawnTimeMap map = new SpawnTimeMap(0);
+        map.mostSigBits = mostSigBits.clone();
+        map.leastSigBits = leastSigBits.clone();
+        map.values = values.clone();
+        map.used = used.clone();
+        map.size = size;
+        map.resizeThreshold = resizeThreshold;
+        return map;
+    }
+
+    private int indexOf(long most, long least) {
+        int mask = used.length - 1;
+        int index = hash(most, least) & mask;
+        while (used[index]) {
+            if (mostSigBits[index] == most && leastSigBits[index] == least) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Backward shift deletion - keeps probe sequences valid without tombstones
+     */
+    private void deleteAt(int index) {
+        int mask = used.length - 1;
+        int free = index;
+        int current = (index + 1) & mask;
+        while (used[current]) {
+            int ideal = hash(mostSigBits[current], leastSigBits[current]) & mask;
+            // move the entry if the free slot lies cyclically between it's ideal position and it's current position
+            if (((current - ideal) & mask) >= ((current - free) & mask)) {
+                mostSigBits[free] = mostSigBits[current];
+                leastSigBits[free] = leastSigBits[current];
+                values[free] = values[current];
+                free = current;
+            }
+            current = (current + 1) & mask;
+        }
+        used[free] = false;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMost = mostSigBits;
+        long[] oldLeast = leastSigBits;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                put(oldMost[i], oldLeast[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostSigBits = new long[capacity];
+        leastSigBits = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int getCapacity(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long most, long least) {
+        long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    public interface EntryConsumer {
+        void accept(long most, long least, long value);
+    }
+}
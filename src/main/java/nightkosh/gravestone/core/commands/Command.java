@@ -25,6 +25,7 @@ public class Command extends CommandBase {
     private static final SubCommandCommandsList COMMANDS_LIST = new SubCommandCommandsList();
     private static final SubCommandGravePosition GRAVE_POS = new SubCommandGravePosition();
     private static final SubCommandRestoreItems GRAVE_ITEMS = new SubCommandRestoreItems();
+    private static final SubCommandGraves GRAVES = new SubCommandGraves();
 
     public static final String MAIN_COMMAND_NAME = "/GS ";
     public static final String HELP = "Type \"" + COMMANDS_LIST.getCommandUsage() + "\" for commands list";
@@ -58,6 +59,9 @@ public class Command extends CommandBase {
                 case SubCommandRestoreItems.COMMAND_NAME:
                     GRAVE_ITEMS.execute(server, sender, args);
                     break;
+                case SubCommandGraves.COMMAND_NAME:
+                    GRAVES.execute(server, sender, args);
+                    break;
                 default:
                     boolean unknownCommand = true;
                     for (ISubCommand additionalCommand : ADDITIONAL_COMMANDS_LIST) {
@@ -0,0 +1,119 @@
+package nightkosh.gravestone.core.commands;
+
+import com.mojang.authlib.GameProfile;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.Style;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.util.text.TextFormatting;
+import nightkosh.gravestone.helper.GravesIndex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * GraveStone mod
+ *
+ * Shows graves of the player. Graves are taken from the graves index, so no chunks are loaded.
+ * Newest graves are shown first, graves created at the same time are sorted by distance to the command sender.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class SubCommandGraves implements ISubCommand {
+
+    public static final String COMMAND_NAME = "graves";
+    public static final String COMMAND_USAGE = Command.MAIN_COMMAND_NAME + COMMAND_NAME + " <player name> [page]";
+    private static final int PAGE_SIZE = 10;
+
+    @Override
+    public String getCommandName() {
+        return COMMAND_NAME;
+    }
+
+    @Override
+    public String getCommandUsage() {
+        return COMMAND_USAGE;
+    }
+
+    @Override
+    public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+        if (args.length < 2) {
+            sender.sendMessage(new TextComponentTranslation("commands.not_enough_parameters").setStyle(new Style().setColor(TextFormatting.RED)));
+            return;
+        }
+        String name = args[1];
+        int page;
+        try {
+            page = (args.length >= 3) ? Integer.parseInt(args[2]) - 1 : 0;
+        } catch (NumberFormatException e) {
+            page = -1;
+        }
+        if (page < 0) {
+            sender.sendMessage(new TextComponentTranslation("commands.graves.wrong_page").setStyle(new Style().setColor(TextFormatting.RED)));
+            return;
+        }
+
+        String owner = getPlayerId(server, name);
+        if (owner == null) {
+            sender.sendMessage(new TextComponentTranslation("commands.graves.unknown_player", name).setStyle(new Style().setColor(TextFormatting.RED)));
+            return;
+        }
+
+        List<GravesIndex.GraveEntry> graves = new ArrayList<>(GravesIndex.get(sender.getEntityWorld()).getOwnerGraves(owner));
+        if (graves.isEmpty()) {
+            sender.sendMessage(new TextComponentTranslation("commands.graves.empty", name).setStyle(new Style().setColor(TextFormatting.GREEN)));
+            return;
+        }
+
+        int dimension = sender.getEntityWorld().provider.getDimension();
+        BlockPos senderPos = sender.getPosition();
+        graves.sort(Comparator.comparingLong(GravesIndex.GraveEntry::getCreationTime).reversed()
+                .thenComparingDouble(grave -> getDistanceSq(grave, dimension, senderPos)));
+
+        int pagesCount = (graves.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        page = Math.min(page, pagesCount - 1);
+        sender.sendMessage(new TextComponentTranslation("commands.graves.header", name, page + 1, pagesCount)
+                .setStyle(new Style().setColor(TextFormatting.GREEN)));
+
+        long worldTime = sender.getEntityWorld().getTotalWorldTime();
+        for (int i = page * PAGE_SIZE; i < Math.min(graves.size(), (page + 1) * PAGE_SIZE); i++) {
+            GravesIndex.GraveEntry grave = graves.get(i);
+            StringBuilder str = new StringBuilder();
+            str.append(i + 1).append(". dim ").append(grave.getDimension()).append(" ")
+                    .append(grave.getPos().getX()).append("/").append(grave.getPos().getY()).append("/").append(grave.getPos().getZ())
+                    .append(", items: ").append(grave.getItemsCount())
+                    .append(", days ago: ").append(Math.max(0, worldTime - grave.getCreationTime()) / 24000);
+            if (grave.getDimension() == dimension) {
+                str.append(", distance: ").append((int) Math.sqrt(getDistanceSq(grave, dimension, senderPos)));
+            }
+            sender.sendMessage(new TextComponentString(str.toString()).setStyle(new Style().setColor(TextFormatting.GREEN)));
+        }
+    }
+
+    private static double getDistanceSq(GravesIndex.GraveEntry grave, int dimension, BlockPos pos) {
+        return grave.getDimension() == dimension ? grave.getPos().distanceSq(pos) : Double.MAX_VALUE;
+    }
+
+    /**
+     * Returns UUID of the online player, of the player from the profiles cache or the argument itself if it is UUID
+     */
+    private static String getPlayerId(MinecraftServer server, String name) {
+        EntityPlayerMP player = server.getPlayerList().getPlayerByUsername(name);
+        if (player != null) {
+            return player.getUniqueID().toString();
+        }
+        try {
+            return UUID.fromString(name).toString();
+        } catch (IllegalArgumentException e) {
+            GameProfile profile = server.getPlayerProfileCache().getGameProfileForUsername(name);
+            return profile == null ? null : profile.getId().toString();
+        }
+    }
+}
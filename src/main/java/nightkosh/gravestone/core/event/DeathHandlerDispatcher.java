@@ -0,0 +1,94 @@
+package nightkosh.gravestone.core.event;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.passive.AbstractHorse;
+import net.minecraft.entity.passive.EntityOcelot;
+import net.minecraft.entity.passive.EntityVillager;
+import net.minecraft.entity.passive.EntityWolf;
+import nightkosh.gravestone.api.death_handler.ICustomEntityDeathHandler;
+import nightkosh.gravestone.helper.api.APIGraveGeneration;
+
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Resolves for each entity class which kind of grave can be generated at it's death.
+ * Result is computed once per class, so death of mobs which never have graves costs a single map lookup.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class DeathHandlerDispatcher {
+
+    public enum EnumEntityCategory {
+        VILLAGER,
+        DOG,
+        CAT,
+        HORSE,
+        OTHER
+    }
+
+    /**
+     * Used for all classes without graves
+     */
+    public static final Handlers NO_HANDLERS = new Handlers(EnumEntityCategory.OTHER, Collections.emptyList());
+
+    private static final Map<Class<? extends Entity>, Handlers> HANDLERS = new HashMap<>();
+
+    public static Handlers getHandlers(Entity entity) {
+        return HANDLERS.computeIfAbsent(entity.getClass(), DeathHandlerDispatcher::resolve);
+    }
+
+    /**
+     * Must be called when list of custom death handlers was changed
+     */
+    public static void invalidate() {
+        HANDLERS.clear();
+    }
+
+    private static Handlers resolve(Class<? extends Entity> entityClass) {
+        EnumEntityCategory category;
+        if (EntityVillager.class.isAssignableFrom(entityClass)) {
+            category = EnumEntityCategory.VILLAGER;
+        } else if (EntityWolf.class.isAssignableFrom(entityClass)) {
+            category = EnumEntityCategory.DOG;
+        } else if (EntityOcelot.class.isAssignableFrom(entityClass)) {
+            category = EnumEntityCategory.CAT;
+        } else if (AbstractHorse.class.isAssignableFrom(entityClass)) {
+            category = EnumEntityCategory.HORSE;
+        } else {
+            category = EnumEntityCategory.OTHER;
+        }
+
+        List<ICustomEntityDeathHandler> customHandlers = new ArrayList<>();
+        for (ICustomEntityDeathHandler customEntityDeathHandler : APIGraveGeneration.CUSTOM_ENTITY_DEATH_HANDLERS) {
+            if (entityClass.equals(customEntityDeathHandler.getEntityClass())) {
+                customHandlers.add(customEntityDeathHandler);
+            }
+        }
+
+        if (category == EnumEntityCategory.OTHER && customHandlers.isEmpty()) {
+            return NO_HANDLERS;
+        }
+        return new Handlers(category, customHandlers);
+    }
+
+    public static class Handlers {
+        private final EnumEntityCategory category;
+        private final List<ICustomEntityDeathHandler> customHandlers;
+
+        private Handlers(EnumEntityCategory category, List<ICustomEntityDeathHandler> customHandlers) {
+            this.category = category;
+            this.customHandlers = customHandlers;
+        }
+
+        public EnumEntityCategory getCategory() {
+            return category;
+        }
+
+        public List<ICustomEntityDeathHandler> getCustomHandlers() {
+            return customHandlers;
+        }
+    }
+}
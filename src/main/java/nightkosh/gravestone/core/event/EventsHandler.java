@@ -7,16 +7,24 @@ import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import net.minecraftforge.event.entity.living.LivingDeathEvent;
 import net.minecraftforge.event.entity.player.PlayerDropsEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.eventhandler.EventPriority;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
 import nightkosh.gravestone.api.death_handler.*;
 import nightkosh.gravestone.config.Config;
+import nightkosh.gravestone.core.CapabilityHandler;
 import nightkosh.gravestone.core.MobHandler;
 import nightkosh.gravestone.core.logger.GravesLogger;
 import nightkosh.gravestone.helper.BackupsHelper;
+import nightkosh.gravestone.helper.GraveCreationQueue;
 import nightkosh.gravestone.helper.GraveGenerationHelper;
+import nightkosh.gravestone.helper.GravesExpiry;
+import nightkosh.gravestone.helper.GravesSweeper;
+import nightkosh.gravestone.helper.InventorySlotsHelper;
+import nightkosh.gravestone.helper.PendingGraves;
 import nightkosh.gravestone.helper.api.APIGraveGeneration;
 
 /**
@@ -32,27 +40,40 @@ public class EventsHandler {
         if (event.isWasDeath()) {
             BackupsHelper.clonePlayer(event.getOriginal(), event.getEntityPlayer());
         }
+        MobHandler.clonePlayer(event.getOriginal(), event.getEntityPlayer(), event.isWasDeath());
     }
 
     @SubscribeEvent(priority = EventPriority.HIGH)
     public void onEntityLivingDeath(LivingDeathEvent event) {
         if (FMLCommonHandler.instance().getEffectiveSide().isServer()) {
+            if (Config.generatePlayerGraves && event.getEntity() instanceof EntityPlayer) {
+                // player's inventory will be cleared before the drops event
+                InventorySlotsHelper.saveSlots((EntityPlayer) event.getEntity());
+            }
+            DeathHandlerDispatcher.Handlers handlers = DeathHandlerDispatcher.getHandlers(event.getEntity());
+            if (handlers == DeathHandlerDispatcher.NO_HANDLERS) {
+                return;
+            }
+
             if (!Config.generateGravesInLava && event.getSource().damageType.equals("lava")) {
                 return;
             }
 
-            if (Config.generateVillagerGraves && event.getEntity() instanceof EntityVillager) {
-                EntityVillager villager = (EntityVillager) event.getEntity();
-                for (IVillagerDeathHandler villagerDeathHandler : APIGraveGeneration.VILLAGER_DEATH_HANDLERS) {
-                    if (villagerDeathHandler.cancelGraveGeneration(villager, event.getSource())) {
+            switch (handlers.getCategory()) {
+                case VILLAGER:
+                    if (Config.generateVillagerGraves) {
+                        EntityVillager villager = (EntityVillager) event.getEntity();
+                        for (IVillagerDeathHandler villagerDeathHandler : APIGraveGeneration.VILLAGER_DEATH_HANDLERS) {
+                            if (villagerDeathHandler.cancelGraveGeneration(villager, event.getSource())) {
+                                return;
+                            }
+                        }
+                        GraveGenerationHelper.createVillagerGrave(villager, event.getSource());
                         return;
                     }
-                }
-                GraveGenerationHelper.createVillagerGrave(villager, event.getSource());
-                return;
-            } else if (Config.generatePetGraves) {
-                if (event.getEntity() instanceof EntityTameable) {
-                    if (event.getEntity() instanceof EntityWolf) {
+                    break;
+                case DOG:
+                    if (Config.generatePetGraves) {
                         EntityWolf dog = (EntityWolf) event.getEntity();
                         for (IDogDeathHandler dogDeathHandler : APIGraveGeneration.DOG_DEATH_HANDLERS) {
                             if (dogDeathHandler.cancelGraveGeneration(dog, event.getSource())) {
@@ -61,7 +82,10 @@ public class EventsHandler {
                         }
                         GraveGenerationHelper.createDogGrave(dog, event.getSource());
                         return;
-                    } else if (event.getEntity() instanceof EntityOcelot) {
+                    }
+                    break;
+                case CAT:
+                    if (Config.generatePetGraves) {
                         EntityOcelot cat = (EntityOcelot) event.getEntity();
                         for (ICatDeathHandler catDeathHandler : APIGraveGeneration.CAT_DEATH_HANDLERS) {
                             if (catDeathHandler.cancelGraveGeneration(cat, event.getSource())) {
@@ -71,21 +95,23 @@ public class EventsHandler {
                         GraveGenerationHelper.createCatGrave(cat, event.getSource());
                         return;
                     }
-                } else if (event.getEntity() instanceof AbstractHorse) {
-                    AbstractHorse horse = (AbstractHorse) event.getEntity();
-                    for (IHorseDeathHandler horseDeathHandler : APIGraveGeneration.HORSE_DEATH_HANDLERS) {
-                        if (horseDeathHandler.cancelGraveGeneration(horse, event.getSource())) {
-                            return;
+                    break;
+                case HORSE:
+                    if (Config.generatePetGraves) {
+                        AbstractHorse horse = (AbstractHorse) event.getEntity();
+                        for (IHorseDeathHandler horseDeathHandler : APIGraveGeneration.HORSE_DEATH_HANDLERS) {
+                            if (horseDeathHandler.cancelGraveGeneration(horse, event.getSource())) {
+                                return;
+                            }
                         }
+                        GraveGenerationHelper.createHorseGrave(horse, event.getSource());
+                        return;
                     }
-                    GraveGenerationHelper.createHorseGrave(horse, event.getSource());
-                    return;
-                }
+                    break;
             }
 
-            for (ICustomEntityDeathHandler customEntityDeathHandler : APIGraveGeneration.CUSTOM_ENTITY_DEATH_HANDLERS) {
-                if (event.getEntity().getClass().equals(customEntityDeathHandler.getEntityClass()) &&
-                        customEntityDeathHandler.canGenerateGrave(event.getEntity(), event.getSource())) {
+            for (ICustomEntityDeathHandler customEntityDeathHandler : handlers.getCustomHandlers()) {
+                if (customEntityDeathHandler.canGenerateGrave(event.getEntity(), event.getSource())) {
                     GraveGenerationHelper.createCustomGrave(event.getEntity(), event, customEntityDeathHandler);
                     return;
                 }
@@ -110,7 +136,7 @@ public class EventsHandler {
                         }
                     }
 
-                    GraveGenerationHelper.createPlayerGrave(player, event.getDrops(), event.getSource(), MobHandler.getAndRemoveSpawnTime(player));
+                    GraveGenerationHelper.createPlayerGrave(player, event.getDrops(), event.getSource(), MobHandler.getSpawnTimeForDeath(player));
                 }
             }
         }
@@ -120,17 +146,12 @@ public class EventsHandler {
     public void entityJoinWorldEvent(EntityJoinWorldEvent event) {
         if (FMLCommonHandler.instance().getEffectiveSide().isServer()) {
             Entity entity = event.getEntity();
-            if (entity instanceof EntityVillager ||
-                    entity instanceof EntityWolf ||
-                    entity instanceof EntityOcelot ||
-                    entity instanceof EntityHorse) {
+            if (!(entity instanceof EntityPlayer) && CapabilityHandler.isSpawnTimeTracked(entity)) {
                 MobHandler.setMobSpawnTime(event.getEntity());
             }
         }
     }
 
-    // TODO remove mobs info at despawn
-
     @SubscribeEvent
     public void worldLoading(WorldEvent.Load event) {
         if (FMLCommonHandler.instance().getEffectiveSide().isServer()) {
@@ -139,6 +160,53 @@ public class EventsHandler {
         }
     }
 
+    @SubscribeEvent
+    public void worldSaving(WorldEvent.Save event) {
+        if (!event.getWorld().isRemote) {
+            GraveCreationQueue.onWorldSave(event.getWorld());
+        }
+        if (!event.getWorld().isRemote && event.getWorld().provider.getDimension() == 0) {
+            MobHandler.saveMobsSpawnTime(event.getWorld());
+        }
+    }
+
+    @SubscribeEvent
+    public void worldUnloading(WorldEvent.Unload event) {
+        if (!event.getWorld().isRemote) {
+            GraveCreationQueue.postponeRequests(event.getWorld());
+            GravesSweeper.onWorldUnload(event.getWorld());
+        }
+        if (!event.getWorld().isRemote && event.getWorld().provider.getDimension() == 0) {
+            MobHandler.unloadMobsSpawnTime(event.getWorld());
+            GravesLogger.close();
+        }
+    }
+
+    @SubscribeEvent
+    public void chunkLoading(ChunkEvent.Load event) {
+        if (!event.getWorld().isRemote) {
+            PendingGraves.get(event.getWorld()).onChunkLoad(event.getChunk().x, event.getChunk().z);
+            GravesExpiry.onChunkLoad(event.getWorld(), event.getChunk().x, event.getChunk().z);
+        }
+    }
+
+    @SubscribeEvent
+    public void worldTick(TickEvent.WorldTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && !event.world.isRemote) {
+            PendingGraves.get(event.world).createGraves(event.world);
+            GravesSweeper.onWorldTick(event.world);
+        }
+    }
+
+    @SubscribeEvent
+    public void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            GraveCreationQueue.processRequests();
+            MobHandler.onServerTick();
+            GravesExpiry.onServerTick(FMLCommonHandler.instance().getMinecraftServerInstance());
+        }
+    }
+
     //TODO remove #245 !!!!!!!!!!!!!!!!!!!!!!!
 //    @SubscribeEvent
 //    public void onChunkLoad(ChunkEvent.Load event) {
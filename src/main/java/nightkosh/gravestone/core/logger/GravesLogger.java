@@ -6,9 +6,16 @@ import org.apache.logging.log4j.message.Message;
 import org.apache.logging.log4j.spi.AbstractLogger;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * GraveStone mod
@@ -18,23 +25,156 @@ import java.util.Date;
  */
 public class GravesLogger extends AbstractLogger {
 
-    private static File logFile;
     private static final String LOG_FILE_DIRECTORY = "logs/";
     private static final String LOG_FILE_NAME = "graveLogs.log";
-    private static final DateFormat FILE_DATE_FORMAT = new SimpleDateFormat("yyyy.MM.dd_HH.mm.ss");
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long FLUSH_INTERVAL = 1000;
+    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024;
+    private static final long MAX_FILE_AGE = 24 * 60 * 60 * 1000;
 
-    private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+    private static final BlockingQueue<LogRecord> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicInteger droppedRecords = new AtomicInteger();
+    private static volatile File logDirectory;
+    private static Thread writerThread;
 
-    public static void setWorldDirectory(File worldDirectory) {
+    /**
+     * Server thread only puts records in to the queue.
+     * File opening, formatting, writing and rotation are done by the background thread.
+     */
+    public static synchronized void setWorldDirectory(File worldDirectory) {
         File logsDir = new File(worldDirectory, LOG_FILE_DIRECTORY);
-        logsDir.mkdir();
+        if (!logsDir.equals(logDirectory)) {
+            logsDir.mkdir();
+            logDirectory = logsDir;
+        }
+        if (writerThread == null) {
+            writerThread = new Thread(new LogWriter(), "GraveStone graves log writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
 
-        StringBuilder fileName = new StringBuilder();
-        fileName.append(LOG_FILE_DIRECTORY)
-                .append(FILE_DATE_FORMAT.format(new Date()))
-                .append(" ")
-                .append(LOG_FILE_NAME);
-        logFile = new File(worldDirectory, fileName.toString());
+    /**
+     * Writes all queued records and closes the log file
+     */
+    public static synchronized void close() {
+        if (writerThread != null) {
+            writerThread.interrupt();
+            try {
+                writerThread.join(FLUSH_INTERVAL * 5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writerThread = null;
+        }
+        logDirectory = null;
+    }
+
+    /**
+     * Each writer thread has it's own writer, so a thread which is still writing queued records after closing
+     * doesn't share it with the thread started for the next world
+     */
+    private static class LogWriter implements Runnable {
+        private final DateFormat fileDateFormat = new SimpleDateFormat("yyyy.MM.dd_HH.mm.ss");
+        private final DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+        private File currentDirectory;
+        private Writer writer;
+        private long fileSize;
+        private long fileCreationTime;
+
+        @Override
+        public void run() {
+            List<LogRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            boolean isInterrupted = false;
+            while (!isInterrupted || !QUEUE.isEmpty()) {
+                try {
+                    LogRecord record = isInterrupted ? QUEUE.poll() : QUEUE.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (record != null) {
+                        batch.add(record);
+                        QUEUE.drainTo(batch, MAX_BATCH_SIZE - 1);
+                    }
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            }
+            closeWriter();
+        }
+
+        private void writeBatch(List<LogRecord> batch) {
+            try {
+                int dropped = droppedRecords.getAndSet(0);
+                if (dropped > 0) {
+                    write(new LogRecord(System.currentTimeMillis(), " [WARN] " + dropped + " graves log records were dropped - log queue is full"));
+                }
+                for (LogRecord record : batch) {
+                    write(record);
+                }
+                if (writer != null) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                GSLogger.logError("Error while writing in graves log file!");
+                e.printStackTrace();
+                closeWriter();
+            }
+        }
+
+        private void write(LogRecord record) throws IOException {
+            File directory = logDirectory;
+            if (directory == null) {
+                directory = currentDirectory;
+            }
+            if (directory == null) {
+                return;
+            }
+            if (writer == null || !directory.equals(currentDirectory) || fileSize >= MAX_FILE_SIZE ||
+                    record.time - fileCreationTime >= MAX_FILE_AGE) {
+                openWriter(directory, record.time);
+            }
+            String str = dateFormat.format(new Date(record.time)) + record.message + System.lineSeparator();
+            writer.write(str);
+            fileSize += str.length();
+        }
+
+        private void openWriter(File directory, long time) throws IOException {
+            closeWriter();
+            StringBuilder fileName = new StringBuilder();
+            fileName.append(fileDateFormat.format(new Date(time)))
+                    .append(" ")
+                    .append(LOG_FILE_NAME);
+            File logFile = new File(directory, fileName.toString());
+            currentDirectory = directory;
+            fileSize = logFile.length();
+            fileCreationTime = time;
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8));
+        }
+
+        private void closeWriter() {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    GSLogger.logError("Error while closing graves log file!");
+                    e.printStackTrace();
+                }
+                writer = null;
+            }
+        }
+    }
+
+    private static class LogRecord {
+        private final long time;
+        private final String message;
+
+        private LogRecord(long time, String message) {
+            this.time = time;
+            this.message = message;
+        }
     }
 
     @Override
@@ -119,10 +259,8 @@ public class GravesLogger extends AbstractLogger {
 
     @Override
     public void logMessage(String fqcn, Level level, Marker marker, Message msg, Throwable throwable) {
-        if (logFile != null) {
+        if (logDirectory != null) {
             StringBuilder loggedStr = new StringBuilder();
-            loggedStr.append(DATE_FORMAT.format(new Date()));
-
             loggedStr.append(" [");
             loggedStr.append(level.toString());
             loggedStr.append("] ");
@@ -143,12 +281,8 @@ public class GravesLogger extends AbstractLogger {
                 loggedStr.append(baos.toString());
             }
 
-            try {
-                PrintWriter out = new PrintWriter(new FileWriter(logFile, true), true);
-                out.println(loggedStr.toString());
-            } catch (IOException e) {
-                GSLogger.logError("Error while writing in graves log file!");
-                e.printStackTrace();
+            if (!QUEUE.offer(new LogRecord(System.currentTimeMillis(), loggedStr.toString()))) {
+                droppedRecords.incrementAndGet();
             }
         } else {
             GSLogger.logError("Graves logs file doesn't exists");
@@ -1,11 +1,13 @@
 package nightkosh.gravestone.gui;
 
+import net.minecraft.client.gui.GuiButton;
+import net.minecraft.client.resources.I18n;
 import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.inventory.InventoryBasic;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 import nightkosh.gravestone.core.Resources;
 import nightkosh.gravestone.gui.container.GraveContainer;
-import nightkosh.gravestone.tileentity.TileEntityGraveStone;
 import org.lwjgl.opengl.GL11;
 
 /**
@@ -17,11 +19,73 @@ import org.lwjgl.opengl.GL11;
 @SideOnly(Side.CLIENT)
 public class GraveInventoryGui extends GuiContainerBase {
 
-    public GraveInventoryGui(InventoryPlayer inventoryPlayer, TileEntityGraveStone tileEntity) {
-        super(new GraveContainer(inventoryPlayer, tileEntity));
+    private static final int BUTTON_SIZE = 12;
+    private static final int LOOT_ALL_BUTTON_WIDTH = 60;
+
+    private final GraveContainer container;
+    private GuiButton previousPageButton;
+    private GuiButton nextPageButton;
+
+    public GraveInventoryGui(InventoryPlayer inventoryPlayer) {
+        this(new GraveContainer(inventoryPlayer, new InventoryBasic("", false, GraveContainer.GRAVE_SLOTS_COUNT)));
+    }
+
+    private GraveInventoryGui(GraveContainer container) {
+        super(container);
+        this.container = container;
         this.ySize = 114 + GraveContainer.ROWS_COUNT * GraveContainer.SLOT_WIDTH;
     }
 
+    @Override
+    public void initGui() {
+        super.initGui();
+        int x = this.guiLeft + this.xSize - 8 - BUTTON_SIZE;
+        int y = this.guiTop + 4;
+        nextPageButton = new GuiButton(GraveContainer.NEXT_PAGE_BUTTON_ID, x, y, BUTTON_SIZE, BUTTON_SIZE, ">");
+        previousPageButton = new GuiButton(GraveContainer.PREVIOUS_PAGE_BUTTON_ID, x - BUTTON_SIZE - 2, y, BUTTON_SIZE, BUTTON_SIZE, "<");
+        this.buttonList.add(previousPageButton);
+        this.buttonList.add(nextPageButton);
+        this.buttonList.add(new GuiButton(GraveContainer.LOOT_ALL_BUTTON_ID, this.guiLeft + 8, y, LOOT_ALL_BUTTON_WIDTH, BUTTON_SIZE,
+                I18n.format("gui.grave.loot_all")));
+        updateButtons();
+    }
+
+    @Override
+    public void updateScreen() {
+        super.updateScreen();
+        updateButtons();
+    }
+
+    /**
+     * Page buttons are shown only for graves with more than one page of items
+     */
+    private void updateButtons() {
+        boolean isPaged = container.getPagesCount() > 1;
+        previousPageButton.visible = isPaged;
+        nextPageButton.visible = isPaged;
+        previousPageButton.enabled = container.getPage() > 0;
+        nextPageButton.enabled = container.getPage() < container.getPagesCount() - 1;
+    }
+
+    /**
+     * Page is changed on server side - new items will be received with the container sync
+     */
+    @Override
+    protected void actionPerformed(GuiButton button) {
+        if (button.enabled) {
+            this.mc.playerController.sendEnchantPacket(this.inventorySlots.windowId, button.id);
+        }
+    }
+
+    @Override
+    protected void drawGuiContainerForegroundLayer(int mouseX, int mouseY) {
+        if (container.getPagesCount() > 1) {
+            String pageStr = (container.getPage() + 1) + "/" + container.getPagesCount();
+            int x = previousPageButton.x - this.guiLeft - 4 - this.fontRenderer.getStringWidth(pageStr);
+            this.fontRenderer.drawString(pageStr, x, 6, 4210752);
+        }
+    }
+
     @Override
     protected void drawGuiContainerBackgroundLayer(float par1, int par2, int par3) {
         GL11.glColor4f(1, 1, 1, 1);
@@ -1,12 +1,19 @@
 package nightkosh.gravestone.gui.container;
 
-import nightkosh.gravestone.inventory.GraveInventory;
-import nightkosh.gravestone.tileentity.TileEntityGraveStone;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.entity.player.InventoryPlayer;
 import net.minecraft.inventory.Container;
+import net.minecraft.inventory.IContainerListener;
+import net.minecraft.inventory.IInventory;
 import net.minecraft.inventory.Slot;
 import net.minecraft.item.ItemStack;
+import net.minecraft.network.play.server.SPacketSetSlot;
+import net.minecraft.util.NonNullList;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+import nightkosh.gravestone.inventory.GraveInventory;
+import nightkosh.gravestone.inventory.GraveInventoryPage;
 
 /**
  * GraveStone mod
@@ -20,12 +27,37 @@ public class GraveContainer extends Container {
     public static final int ROWS_COUNT = 6;
     public static final int COLUMNS_COUNT = 9;
     public static final int SLOT_WIDTH = 18;
-    private GraveInventory graveInventory;
+    public static final int GRAVE_SLOTS_COUNT = ROWS_COUNT * COLUMNS_COUNT;
+
+    public static final int PREVIOUS_PAGE_BUTTON_ID = 0;
+    public static final int NEXT_PAGE_BUTTON_ID = 1;
+    public static final int LOOT_ALL_BUTTON_ID = 2;
+
+    private static final int PAGE_PROPERTY_ID = 0;
+    private static final int PAGES_COUNT_PROPERTY_ID = 1;
+
+    private IInventory graveInventory;
+    /**
+     * Server side only - visible part of the grave inventory
+     */
+    private GraveInventoryPage graveInventoryPage;
+    private int page = 0;
+    private int pagesCount = 1;
 
-    public GraveContainer(InventoryPlayer inventoryPlayer, TileEntityGraveStone te) {
+    /**
+     * @param graveInventory grave inventory on server side or an empty inventory on client side.
+     *                       Grave loot is not sent with the tile entity so client slots are filled by container sync only.
+     *                       Graves with more than GRAVE_SLOTS_COUNT items are shown by pages and only the current page is synchronized.
+     */
+    public GraveContainer(InventoryPlayer inventoryPlayer, IInventory graveInventory) {
         int i = 2 * SLOT_WIDTH;
 
-        graveInventory = te.getInventory();
+        if (graveInventory instanceof GraveInventory) {
+            graveInventoryPage = new GraveInventoryPage((GraveInventory) graveInventory, GRAVE_SLOTS_COUNT);
+            pagesCount = graveInventoryPage.getPagesCount();
+            graveInventory = graveInventoryPage;
+        }
+        this.graveInventory = graveInventory;
         for (int row = 0; row < ROWS_COUNT; row++) {
             for (int column = 0; column < COLUMNS_COUNT; column++) {
                 this.addSlotToContainer(new GraveSlot(graveInventory, column + row * COLUMNS_COUNT, 8 + column * SLOT_WIDTH, SLOT_WIDTH + row * SLOT_WIDTH));
@@ -48,6 +80,112 @@ public class GraveContainer extends Container {
         return true;
     }
 
+    public int getPage() {
+        return page;
+    }
+
+    public int getPagesCount() {
+        return pagesCount;
+    }
+
+    /**
+     * Handles GUI buttons clicks on server side
+     */
+    @Override
+    public boolean enchantItem(EntityPlayer player, int id) {
+        if (graveInventoryPage == null) {
+            return false;
+        }
+        switch (id) {
+            case PREVIOUS_PAGE_BUTTON_ID:
+                graveInventoryPage.setPage(graveInventoryPage.getPage() - 1);
+                return true;
+            case NEXT_PAGE_BUTTON_ID:
+                graveInventoryPage.setPage(graveInventoryPage.getPage() + 1);
+                return true;
+            case LOOT_ALL_BUTTON_ID:
+                graveInventoryPage.getGraveInventory().restoreItems(player);
+                if (player instanceof EntityPlayerMP) {
+                    sendAllContents((EntityPlayerMP) player, this);
+                    sendArmorAndOffhandSlots((EntityPlayerMP) player);
+                }
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sends all slots by one packet instead of a packet per changed slot
+     */
+    private static void sendAllContents(EntityPlayerMP player, Container container) {
+        NonNullList<ItemStack> items = container.getInventory();
+        for (int slot = 0; slot < items.size(); slot++) {
+            container.inventoryItemStacks.set(slot, items.get(slot).copy());
+        }
+        player.sendAllContents(container, items);
+    }
+
+    /**
+     * Main inventory is a part of this container and is already sent with it - only copies of these slots in the player's
+     * container are updated. Armor and offhand slots are not in this container, so each changed slot is sent by it's own packet.
+     */
+    private static void sendArmorAndOffhandSlots(EntityPlayerMP player) {
+        Container container = player.inventoryContainer;
+        for (Slot slot : container.inventorySlots) {
+            if (slot.inventory == player.inventory) {
+                ItemStack stack = slot.getStack();
+                if (slot.getSlotIndex() >= player.inventory.mainInventory.size() &&
+                        !ItemStack.areItemStacksEqual(container.inventoryItemStacks.get(slot.slotNumber), stack)) {
+                    player.connection.sendPacket(new SPacketSetSlot(container.windowId, slot.slotNumber, stack));
+                }
+                container.inventoryItemStacks.set(slot.slotNumber, stack.copy());
+            }
+        }
+    }
+
+    @Override
+    public void addListener(IContainerListener listener) {
+        super.addListener(listener);
+        listener.sendWindowProperty(this, PAGE_PROPERTY_ID, page);
+        listener.sendWindowProperty(this, PAGES_COUNT_PROPERTY_ID, pagesCount);
+    }
+
+    /**
+     * Only slots of the current page are compared and sent
+     */
+    @Override
+    public void detectAndSendChanges() {
+        if (graveInventoryPage != null) {
+            int newPagesCount = graveInventoryPage.getPagesCount();
+            graveInventoryPage.setPage(graveInventoryPage.getPage());
+            int newPage = graveInventoryPage.getPage();
+            for (IContainerListener listener : this.listeners) {
+                if (newPage != page) {
+                    listener.sendWindowProperty(this, PAGE_PROPERTY_ID, newPage);
+                }
+                if (newPagesCount != pagesCount) {
+                    listener.sendWindowProperty(this, PAGES_COUNT_PROPERTY_ID, newPagesCount);
+                }
+            }
+            page = newPage;
+            pagesCount = newPagesCount;
+        }
+        super.detectAndSendChanges();
+    }
+
+    @SideOnly(Side.CLIENT)
+    @Override
+    public void updateProgressBar(int id, int data) {
+        switch (id) {
+            case PAGE_PROPERTY_ID:
+                page = data;
+                break;
+            case PAGES_COUNT_PROPERTY_ID:
+                pagesCount = data;
+                break;
+        }
+    }
+
 
     @Override
     public ItemStack transferStackInSlot(EntityPlayer player, int slot) {
@@ -58,8 +196,8 @@ public class GraveContainer extends Container {
             ItemStack stackInSlot = slotObject.getStack();
             stack = stackInSlot.copy();
 
-            if (slot < graveInventory.getSizeInventoryForGui()) {
-                if (!this.mergeItemStack(stackInSlot, graveInventory.getSizeInventoryForGui(), 36 + graveInventory.getSizeInventoryForGui(), true)) {
+            if (slot < GRAVE_SLOTS_COUNT) {
+                if (!this.mergeItemStack(stackInSlot, GRAVE_SLOTS_COUNT, 36 + GRAVE_SLOTS_COUNT, true)) {
                     return ItemStack.EMPTY;
                 }
             } else {
@@ -69,7 +207,8 @@ public class GraveContainer extends Container {
             if (stackInSlot.getCount() == 0) {
                 slotObject.putStack(ItemStack.EMPTY);
             } else {
-                slotObject.onSlotChanged();
+                // stack was changed in place - put it back, so the grave will know which slot was changed
+                slotObject.putStack(stackInSlot);
             }
 
             if (stackInSlot.getCount() == stack.getCount()) {
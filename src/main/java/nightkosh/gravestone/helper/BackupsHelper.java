@@ -32,14 +32,16 @@ public class BackupsHelper {
         }
     }
 
-    public static void addBackup(Entity entity, World world, BlockPos pos, List<ItemStack> items) {
+    public static Backup addBackup(Entity entity, World world, BlockPos pos, List<ItemStack> items) {
         if (Config.createBackups && entity instanceof EntityPlayer) {
             try {
-                entity.getCapability(BackupProvider.BACKUP_CAP, null)
-                        .addBackup(new Backup(world.provider.getDimension(), pos, items));
+                Backup backup = new Backup(world.provider.getDimension(), pos, items);
+                entity.getCapability(BackupProvider.BACKUP_CAP, null).addBackup(backup);
+                return backup;
             } catch (Exception e) {
                 GSLogger.logError("Can't create backup!");
             }
         }
+        return null;
     }
 }
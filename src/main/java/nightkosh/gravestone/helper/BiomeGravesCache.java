@@ -0,0 +1,103 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.world.biome.Biome;
+import net.minecraftforge.common.BiomeDictionary;
+import nightkosh.gravestone.api.grave.EnumGraveMaterial;
+import nightkosh.gravestone.config.Config;
+
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Graves materials and "mossiness" depend only on biome types, so they are computed once for each biome.
+ * Cache is cleared at server start and must be cleared by other mods if they change BiomeDictionary after that.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class BiomeGravesCache {
+
+    private static final Map<Biome, BiomeInfo> CACHE = new IdentityHashMap<>();
+
+    public static void invalidate() {
+        CACHE.clear();
+    }
+
+    public static EnumGraveMaterial[] getMaterials(Biome biome) {
+        return getBiomeInfo(biome).materials;
+    }
+
+    public static boolean isMossy(Biome biome) {
+        return getBiomeInfo(biome).mossy;
+    }
+
+    private static BiomeInfo getBiomeInfo(Biome biome) {
+        BiomeInfo info = CACHE.get(biome);
+        if (info == null) {
+            Set<BiomeDictionary.Type> biomeTypesList = BiomeDictionary.getTypes(biome);
+            info = new BiomeInfo(getMaterials(biomeTypesList),
+                    biomeTypesList.contains(BiomeDictionary.Type.JUNGLE) || biomeTypesList.contains(BiomeDictionary.Type.SWAMP));
+            CACHE.put(biome, info);
+        }
+        return info;
+    }
+
+    private static EnumGraveMaterial[] getMaterials(Set<BiomeDictionary.Type> biomeTypesList) {
+        List<EnumGraveMaterial> materials = new ArrayList<>();
+        if (biomeTypesList.contains(BiomeDictionary.Type.SANDY) || biomeTypesList.contains(BiomeDictionary.Type.BEACH)) {
+            materials.add(EnumGraveMaterial.SANDSTONE);
+        }
+        if (biomeTypesList.contains(BiomeDictionary.Type.JUNGLE) || biomeTypesList.contains(BiomeDictionary.Type.SWAMP)) {
+            materials.add(EnumGraveMaterial.STONE);
+        }
+        if (biomeTypesList.contains(BiomeDictionary.Type.MOUNTAIN)) {
+            materials.add(EnumGraveMaterial.GRANITE);
+        }
+        if (biomeTypesList.contains(BiomeDictionary.Type.HILLS)) {
+            materials.add(EnumGraveMaterial.ANDESITE);
+            materials.add(EnumGraveMaterial.DIORITE);
+        }
+        if (biomeTypesList.contains(BiomeDictionary.Type.PLAINS) || biomeTypesList.contains(BiomeDictionary.Type.MUSHROOM)) {
+            materials.add(EnumGraveMaterial.STONE);
+        }
+        if (biomeTypesList.contains(BiomeDictionary.Type.FOREST)) {
+            materials.add(EnumGraveMaterial.WOOD);
+        }
+        if (biomeTypesList.contains(BiomeDictionary.Type.SNOWY)) {
+            materials.add(EnumGraveMaterial.ICE);
+        }
+        if (biomeTypesList.contains(BiomeDictionary.Type.NETHER)) {
+            materials.add(EnumGraveMaterial.QUARTZ);
+        }
+        if (biomeTypesList.contains(BiomeDictionary.Type.MESA)) {
+            materials.add(EnumGraveMaterial.RED_SANDSTONE);
+        }
+        // TODO if (biomeTypesList.contains(BiomeDictionary.Type.END)) {} ????????
+        if (biomeTypesList.contains(BiomeDictionary.Type.WATER)) {
+            materials.add(EnumGraveMaterial.PRIZMARINE);
+        }
+
+        for (Map.Entry<BiomeDictionary.Type, List<EnumGraveMaterial>> entry : Config.biomeTypesGravesMaterials.entrySet()) {
+            if (biomeTypesList.contains(entry.getKey())) {
+                materials.addAll(entry.getValue());
+            }
+        }
+
+        if (materials.isEmpty()) {
+            materials.add(EnumGraveMaterial.STONE);
+        }
+
+        return materials.toArray(new EnumGraveMaterial[materials.size()]);
+    }
+
+    private static class BiomeInfo {
+        private final EnumGraveMaterial[] materials;
+        private final boolean mossy;
+
+        private BiomeInfo(EnumGraveMaterial[] materials, boolean mossy) {
+            this.materials = materials;
+            this.mossy = mossy;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package nightkosh.gravestone.helper;
+
+import nightkosh.gravestone.core.logger.GSLogger;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * GraveStone mod
+ *
+ * Classifies damage types by their names. Categories of each damage type are computed once
+ * and stored as a bit set, so checks don't allocate lowercased strings at each death.
+ * Additional rules can be set in the config - "regex:CATEGORY,CATEGORY;..."
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class DamageTypeClassifier {
+
+    public enum EnumDamageCategory {
+        FIRE,
+        LAVA,
+        MAGIC,
+        BLAST,
+        FIREBALL,
+        ARROW;
+
+        public final int bit = 1 << ordinal();
+    }
+
+    private static final List<Rule> DEFAULT_RULES = Arrays.asList(
+            new Rule("nfire", EnumDamageCategory.FIRE),
+            new Rule("lava", EnumDamageCategory.LAVA),
+            new Rule("magic", EnumDamageCategory.MAGIC),
+            new Rule("explosion", EnumDamageCategory.BLAST),
+            new Rule("fireball", EnumDamageCategory.FIREBALL),
+            new Rule("arrow", EnumDamageCategory.ARROW)
+    );
+
+    private static final Map<String, Integer> CACHE = new HashMap<>();
+    private static List<Rule> customRules = Collections.emptyList();
+
+    public static boolean is(String damageType, EnumDamageCategory category) {
+        return (getCategories(damageType) & category.bit) != 0;
+    }
+
+    public static int getCategories(String damageType) {
+        Integer categories = CACHE.get(damageType);
+        if (categories == null) {
+            categories = classify(damageType);
+            CACHE.put(damageType, categories);
+        }
+        return categories;
+    }
+
+    /**
+     * Returns death type which is used to choose killer's name for random graves
+     */
+    public static DeathTextHelper.DeathType getDeathType(String damageType) {
+        int categories = getCategories(damageType);
+        if ((categories & EnumDamageCategory.FIREBALL.bit) != 0) {
+            return DeathTextHelper.DeathType.FIREBALL;
+        } else if ((categories & EnumDamageCategory.BLAST.bit) != 0) {
+            return DeathTextHelper.DeathType.BLOW;
+        } else if ((categories & EnumDamageCategory.MAGIC.bit) != 0) {
+            return DeathTextHelper.DeathType.MAGIC;
+        } else if ((categories & EnumDamageCategory.ARROW.bit) != 0) {
+            return DeathTextHelper.DeathType.ARROW;
+        }
+        return DeathTextHelper.DeathType.ALL;
+    }
+
+    /**
+     * Parses rules in format "regex:CATEGORY,CATEGORY;regex:CATEGORY"
+     */
+    public static void setCustomRules(String rulesStr) {
+        List<Rule> rules = new ArrayList<>();
+        for (String ruleStr : rulesStr.split(";")) {
+            int separator = ruleStr.lastIndexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                Pattern pattern = Pattern.compile(ruleStr.substring(0, separator).trim(), Pattern.CASE_INSENSITIVE);
+                int categories = 0;
+                for (String categoryStr : ruleStr.substring(separator + 1).split(",")) {
+                    try {
+                        categories |= EnumDamageCategory.valueOf(categoryStr.trim().toUpperCase()).bit;
+                    } catch (IllegalArgumentException e) {
+                        GSLogger.logError("Unknown damage category " + categoryStr);
+                    }
+                }
+                if (categories != 0) {
+                    rules.add(new Rule(pattern, categories));
+                }
+            } catch (PatternSyntaxException e) {
+                GSLogger.logError("Wrong damage type pattern " + ruleStr);
+            }
+        }
+        customRules = rules;
+        CACHE.clear();
+    }
+
+    private static int classify(String damageType) {
+        int categories = 0;
+        String lowerCaseType = damageType.toLowerCase();
+        for (Rule rule : DEFAULT_RULES) {
+            if (lowerCaseType.contains(rule.substring)) {
+                categories |= rule.categories;
+            }
+        }
+        for (Rule rule : customRules) {
+            if (rule.pattern.matcher(damageType).find()) {
+                categories |= rule.categories;
+            }
+        }
+        return categories;
+    }
+
+    private static class Rule {
+        private final String substring;
+        private final Pattern pattern;
+        private final int categories;
+
+        private Rule(String substring, EnumDamageCategory category) {
+            this.substring = substring;
+            this.pattern = null;
+            this.categories = category.bit;
+        }
+
+        private Rule(Pattern pattern, int categories) {
+            this.substring = null;
+            this.pattern = pattern;
+            this.categories = categories;
+        }
+    }
+}
@@ -24,44 +24,48 @@ public class DeathTextHelper {
         MAGIC
     }
 
+    private static final String DEATH_ATTACK_PREFIX = "death.attack.";
+    /**
+     * Death type of each message is chosen by the damage types classifier
+     */
     public static final DeathMessageInfo[] LOCALIZED_DEATH_TEXT = {
-            new DeathMessageInfo("", "death.attack.anvil", null, null, null),
-            new DeathMessageInfo("", "death.attack.arrow", "", null, DeathType.ARROW),
-            new DeathMessageInfo("", "death.attack.cactus", null, null, null),
-            new DeathMessageInfo("", "death.attack.cactus.player", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.drown", null, null, null),
-            new DeathMessageInfo("", "death.attack.drown.player", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.explosion", null, null, null),
-            new DeathMessageInfo("", "death.attack.explosion.player", "", null, DeathType.BLOW),
-            new DeathMessageInfo("", "death.attack.fall", null, null, null),
-            new DeathMessageInfo("", "death.attack.fallingBlock", null, null, null),
-            new DeathMessageInfo("", "death.attack.fireball", "", null, DeathType.FIREBALL),
-            new DeathMessageInfo("", "death.attack.inFire", null, null, null),
-            new DeathMessageInfo("", "death.attack.inFire.player", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.inWall", null, null, null),
-            new DeathMessageInfo("", "death.attack.indirectMagic", "", null, DeathType.MAGIC),
-            new DeathMessageInfo("", "death.attack.lava", null, null, null),
-            new DeathMessageInfo("", "death.attack.lava.player", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.magic", null, null, null),
-            new DeathMessageInfo("", "death.attack.mob", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.onFire", null, null, null),
-            new DeathMessageInfo("", "death.attack.onFire.player", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.outOfWorld", null, null, null),
-            new DeathMessageInfo("", "death.attack.player", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.starve", null, null, null),
-            new DeathMessageInfo("", "death.attack.thorns", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.thrown", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.attack.wither", null, null, null),
-            new DeathMessageInfo("", "death.fell.accident.generic", null, null, null),
-            new DeathMessageInfo("", "death.fell.accident.ladder", null, null, null),
-            new DeathMessageInfo("", "death.fell.accident.vines", null, null, null),
-            new DeathMessageInfo("", "death.fell.accident.water", null, null, null),
-            new DeathMessageInfo("", "death.fell.assist", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.fell.finish", "", null, DeathType.ALL),
-            new DeathMessageInfo("", "death.fell.killer", null, null, null),
-            new DeathMessageInfo("", "death.GS.Herobrine", null, null, null),
-            new DeathMessageInfo("", "death.GS.death_sentence", null, null, null),
-            new DeathMessageInfo("", "death.GS.tortures", null, null, null)
+            new DeathMessageInfo("", "death.attack.anvil", null),
+            new DeathMessageInfo("", "death.attack.arrow", ""),
+            new DeathMessageInfo("", "death.attack.cactus", null),
+            new DeathMessageInfo("", "death.attack.cactus.player", ""),
+            new DeathMessageInfo("", "death.attack.drown", null),
+            new DeathMessageInfo("", "death.attack.drown.player", ""),
+            new DeathMessageInfo("", "death.attack.explosion", null),
+            new DeathMessageInfo("", "death.attack.explosion.player", ""),
+            new DeathMessageInfo("", "death.attack.fall", null),
+            new DeathMessageInfo("", "death.attack.fallingBlock", null),
+            new DeathMessageInfo("", "death.attack.fireball", ""),
+            new DeathMessageInfo("", "death.attack.inFire", null),
+            new DeathMessageInfo("", "death.attack.inFire.player", ""),
+            new DeathMessageInfo("", "death.attack.inWall", null),
+            new DeathMessageInfo("", "death.attack.indirectMagic", ""),
+            new DeathMessageInfo("", "death.attack.lava", null),
+            new DeathMessageInfo("", "death.attack.lava.player", ""),
+            new DeathMessageInfo("", "death.attack.magic", null),
+            new DeathMessageInfo("", "death.attack.mob", ""),
+            new DeathMessageInfo("", "death.attack.onFire", null),
+            new DeathMessageInfo("", "death.attack.onFire.player", ""),
+            new DeathMessageInfo("", "death.attack.outOfWorld", null),
+            new DeathMessageInfo("", "death.attack.player", ""),
+            new DeathMessageInfo("", "death.attack.starve", null),
+            new DeathMessageInfo("", "death.attack.thorns", ""),
+            new DeathMessageInfo("", "death.attack.thrown", ""),
+            new DeathMessageInfo("", "death.attack.wither", null),
+            new DeathMessageInfo("", "death.fell.accident.generic", null),
+            new DeathMessageInfo("", "death.fell.accident.ladder", null),
+            new DeathMessageInfo("", "death.fell.accident.vines", null),
+            new DeathMessageInfo("", "death.fell.accident.water", null),
+            new DeathMessageInfo("", "death.fell.assist", ""),
+            new DeathMessageInfo("", "death.fell.finish", ""),
+            new DeathMessageInfo("", "death.fell.killer", null),
+            new DeathMessageInfo("", "death.GS.Herobrine", null),
+            new DeathMessageInfo("", "death.GS.death_sentence", null),
+            new DeathMessageInfo("", "death.GS.tortures", null)
     };
     public static final DeathMessageInfo[] SPECIAL_LOCALIZED_DEATH_TEXT = {
             new DeathMessageInfo("Notch", "death.GS.Herobrine", null),
@@ -193,12 +197,23 @@ public class DeathTextHelper {
         } else {
             info = LOCALIZED_DEATH_TEXT[random.nextInt(LOCALIZED_DEATH_TEXT.length)];
             if (info.getKillerName() != null) {
-                info.setKillerName(getRandomKillerName(random, info.getDeathType()));
+                info.setKillerName(getRandomKillerName(random, DamageTypeClassifier.getDeathType(getDamageType(info.getDeathMessage()))));
             }
         }
         return info;
     }
 
+    /**
+     * Returns damage type of the death message - "death.attack.<damage type>" or "death.attack.<damage type>.player"
+     */
+    private static String getDamageType(String deathMessage) {
+        if (deathMessage.startsWith(DEATH_ATTACK_PREFIX)) {
+            int end = deathMessage.indexOf('.', DEATH_ATTACK_PREFIX.length());
+            return end < 0 ? deathMessage.substring(DEATH_ATTACK_PREFIX.length()) : deathMessage.substring(DEATH_ATTACK_PREFIX.length(), end);
+        }
+        return deathMessage;
+    }
+
     public static String getRandomKillerName(Random random, DeathType deathType) {
         switch (deathType) {
             case ARROW:
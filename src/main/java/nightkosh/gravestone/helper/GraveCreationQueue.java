@@ -0,0 +1,198 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import nightkosh.gravestone.capability.Backup;
+import nightkosh.gravestone.config.Config;
+import nightkosh.gravestone.core.logger.GSLogger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * GraveStone mod
+ *
+ * Graves are not created inside the death event - everything which depends on the dead entity is captured
+ * in to a request, and requests are processed at the end of the server tick.
+ * Amount of graves created per tick and time spent on them are limited by the config.
+ * Players graves are always created before graves of villagers and pets.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class GraveCreationQueue {
+
+    private static final Deque<Request> PLAYERS_GRAVES = new ArrayDeque<>();
+    private static final Deque<Request> OTHER_GRAVES = new ArrayDeque<>();
+
+    public static void add(Request request) {
+        if (request.isPlayer) {
+            PLAYERS_GRAVES.add(request);
+        } else {
+            OTHER_GRAVES.add(request);
+        }
+    }
+
+    public static boolean isEmpty() {
+        return PLAYERS_GRAVES.isEmpty() && OTHER_GRAVES.isEmpty();
+    }
+
+    public static void processRequests() {
+        if (isEmpty()) {
+            return;
+        }
+        long deadline = System.nanoTime() + Config.gravesCreationTimeBudget * 1000000L;
+        int count = 0;
+        // at least one grave is created every tick
+        while (count < Config.maxGravesCreatedPerTick) {
+            Request request = PLAYERS_GRAVES.poll();
+            if (request == null) {
+                request = OTHER_GRAVES.poll();
+                if (request == null) {
+                    break;
+                }
+            }
+            try {
+                request.createGrave();
+            } catch (Exception e) {
+                GSLogger.logError("Can't create " + request.graveData.getName() + "'s grave!");
+                e.printStackTrace();
+                // items of the dead entity are already removed from the world
+                request.drop();
+            }
+            count++;
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Moves not created graves of the unloading world in to the pending graves of their worlds.
+     * The world is already saved when it is unloaded, so items can't be dropped in to it -
+     * pending graves of the unloading world are saved again here.
+     */
+    public static void postponeRequests(World world) {
+        postponeRequests(PLAYERS_GRAVES, world, false);
+        postponeRequests(OTHER_GRAVES, world, false);
+        world.getPerWorldStorage().saveAllData();
+    }
+
+    /**
+     * Moves not created graves of the saving world in to it's pending graves, so they will not be lost if the server crashes.
+     * Graves in loaded chunks are created at the next tick.
+     * World data is saved before WorldEvent.Save, so pending graves are saved again here.
+     */
+    public static void onWorldSave(World world) {
+        if (!isEmpty()) {
+            postponeRequests(PLAYERS_GRAVES, world, true);
+            postponeRequests(OTHER_GRAVES, world, true);
+            world.getPerWorldStorage().saveAllData();
+        }
+    }
+
+    /**
+     * @param onlyGraveWorld if true only requests which grave must be created in the world are moved
+     */
+    private static void postponeRequests(Deque<Request> requests, World world, boolean onlyGraveWorld) {
+        Iterator<Request> it = requests.iterator();
+        while (it.hasNext()) {
+            Request request = it.next();
+            if (request.getGraveWorld() == world || (!onlyGraveWorld && request.world == world)) {
+                it.remove();
+                request.postpone();
+            }
+        }
+    }
+
+    /**
+     * Drops all not created graves and their content - used at server stopping,
+     * so items will be saved with the world instead of being lost
+     */
+    public static void dropAll() {
+        dropRequests(PLAYERS_GRAVES);
+        dropRequests(OTHER_GRAVES);
+    }
+
+    private static void dropRequests(Deque<Request> requests) {
+        Iterator<Request> it = requests.iterator();
+        while (it.hasNext()) {
+            Request request = it.next();
+            it.remove();
+            request.drop();
+        }
+    }
+
+    public static class Request {
+        private final World world;
+        private final BlockPos deathPos;
+        private final World graveWorld;
+        private final BlockPos gravePos;
+        private final EnumFacing facing;
+        private final GraveData graveData;
+        private final Backup backup;
+        private final boolean isPlayer;
+
+        /**
+         * @param graveWorld world of the grave set by other mod or null
+         * @param gravePos   position of the grave set by other mod or null if it should be found around the death position
+         * @param backup     backup of player's items which position must be updated after grave creation or null
+         */
+        public Request(World world, BlockPos deathPos, World graveWorld, BlockPos gravePos, EnumFacing facing,
+                       GraveData graveData, Backup backup, boolean isPlayer) {
+            this.world = world;
+            this.deathPos = deathPos;
+            this.graveWorld = graveWorld;
+            this.gravePos = gravePos;
+            this.facing = facing;
+            this.graveData = graveData;
+            this.backup = backup;
+            this.isPlayer = isPlayer;
+        }
+
+        private void createGrave() {
+            World newWorld = graveWorld;
+            BlockPos newPos = gravePos;
+            if (newPos == null && isPlayer) {
+                // graves created by the previous requests can be used too
+                BlockPos mergedGravePos = GraveGenerationHelper.mergeWithNearbyGrave(world, deathPos, graveData);
+                if (mergedGravePos != null) {
+                    if (backup != null) {
+                        backup.setDimensionId(world.provider.getDimension());
+                        backup.setPos(mergedGravePos);
+                    }
+                    return;
+                }
+            }
+            if (newPos == null) {
+                newWorld = world;
+                newPos = GraveGenerationHelper.findPlaceForGrave(world, deathPos);
+            }
+            if (backup != null && newPos != null) {
+                backup.setDimensionId(newWorld.provider.getDimension());
+                backup.setPos(newPos);
+            }
+            GraveGenerationHelper.createGrave(world, deathPos, newWorld, newPos, facing, graveData);
+        }
+
+        private World getGraveWorld() {
+            return gravePos == null ? world : graveWorld;
+        }
+
+        private void postpone() {
+            GSLogger.logInfoGrave("Creation of " + graveData.getName() + "'s grave was moved to the pending graves");
+            if (gravePos != null) {
+                PendingGraves.get(graveWorld).add(graveWorld, gravePos, facing, graveData, false);
+            } else {
+                PendingGraves.get(world).add(world, deathPos, facing, graveData, true);
+            }
+        }
+
+        private void drop() {
+            GSLogger.logInfoGrave("Server is stopping - " + graveData.getName() + "'s grave will be dropped");
+            GraveGenerationHelper.placeGrave(world, deathPos, null, null, facing, graveData);
+        }
+    }
+}
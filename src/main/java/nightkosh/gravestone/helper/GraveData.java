@@ -0,0 +1,204 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import nightkosh.gravestone.block.enums.EnumGraves;
+import nightkosh.gravestone.tileentity.DeathMessageInfo;
+import nightkosh.gravestone.tileentity.TileEntityGraveStone;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GraveStone mod
+ *
+ * Everything which is required to create grave after the death of the entity -
+ * it is used when grave can't be created immediately.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class GraveData {
+
+    private final String name;
+    private final String deathText;
+    private final String killerName;
+    private final String killerNameForItem;
+    private final List<ItemStack> items;
+    /**
+     * Slots of player's items at the death - used to return items back in to the same slots
+     */
+    private final Map<ItemStack, Integer> playerSlots;
+    private final int age;
+    private final EnumGraves grave;
+    private final ItemStack sword;
+    private final boolean enchanted;
+    private final boolean mossy;
+    private final String owner;
+
+    public GraveData(DeathMessageInfo deathInfo, List<ItemStack> items, Map<ItemStack, Integer> playerSlots, int age,
+                     EnumGraves grave, ItemStack sword, boolean enchanted, boolean mossy, String owner) {
+        this(deathInfo.getName(), deathInfo.getDeathMessage(), deathInfo.getKillerName(), deathInfo.getKillerNameForTE(),
+                items, playerSlots, age, grave, sword, enchanted, mossy, owner);
+    }
+
+    private GraveData(String name, String deathText, String killerName, String killerNameForItem, List<ItemStack> items,
+                      Map<ItemStack, Integer> playerSlots, int age, EnumGraves grave, ItemStack sword, boolean enchanted,
+                      boolean mossy, String owner) {
+        this.name = name;
+        this.deathText = deathText;
+        this.killerName = killerName;
+        this.killerNameForItem = killerNameForItem;
+        this.items = items;
+        this.playerSlots = playerSlots;
+        this.age = age;
+        this.grave = grave;
+        this.sword = sword;
+        this.enchanted = enchanted;
+        this.mossy = mossy;
+        this.owner = owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDeathText() {
+        return deathText;
+    }
+
+    public String getKillerNameForItem() {
+        return killerNameForItem;
+    }
+
+    public List<ItemStack> getItems() {
+        return items;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public EnumGraves getGrave() {
+        return grave;
+    }
+
+    public ItemStack getSword() {
+        return sword;
+    }
+
+    public boolean isEnchanted() {
+        return enchanted;
+    }
+
+    public boolean isMossy() {
+        return mossy;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void fillTileEntity(TileEntityGraveStone tileEntity) {
+        if (sword != null) {
+            tileEntity.setSword(sword);
+        }
+
+        tileEntity.getDeathTextComponent().setLocalized();
+        tileEntity.getDeathTextComponent().setName(name);
+        tileEntity.getDeathTextComponent().setDeathText(deathText);
+        tileEntity.getDeathTextComponent().setKillerName(killerName);
+        tileEntity.getInventory().setItems(items, playerSlots);
+        tileEntity.setGraveType(grave.ordinal());
+        tileEntity.setAge(age);
+        tileEntity.setEnchanted(enchanted);
+        tileEntity.setMossy(mossy);
+        if (owner != null) {
+            tileEntity.setOwner(owner);
+        }
+    }
+
+    /**
+     * Adds items to the existing grave instead of creation of a new one. Death text is replaced by the new one.
+     */
+    public void mergeInto(TileEntityGraveStone tileEntity) {
+        tileEntity.getInventory().setItems(items, playerSlots);
+        if (sword != null) {
+            // sword was taken from the items for a sword grave
+            tileEntity.getInventory().addInventoryContent(sword);
+        }
+
+        tileEntity.getDeathTextComponent().setLocalized();
+        tileEntity.getDeathTextComponent().setName(name);
+        tileEntity.getDeathTextComponent().setDeathText(deathText);
+        tileEntity.getDeathTextComponent().setKillerName(killerName);
+        tileEntity.getDeathTextComponent().addDeath();
+    }
+
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+        setString(nbt, "Name", name);
+        setString(nbt, "DeathText", deathText);
+        setString(nbt, "KillerName", killerName);
+        setString(nbt, "KillerNameForItem", killerNameForItem);
+        if (items != null) {
+            NBTTagList list = new NBTTagList();
+            for (ItemStack stack : items) {
+                if (stack != null && !stack.isEmpty()) {
+                    NBTTagCompound stackNBT = stack.writeToNBT(new NBTTagCompound());
+                    Integer slot = playerSlots.get(stack);
+                    if (slot != null) {
+                        stackNBT.setInteger("PlayerSlot", slot);
+                    }
+                    list.appendTag(stackNBT);
+                }
+            }
+            nbt.setTag("Items", list);
+        }
+        nbt.setInteger("Age", age);
+        nbt.setInteger("Grave", grave.ordinal());
+        if (sword != null) {
+            nbt.setTag("Sword", sword.writeToNBT(new NBTTagCompound()));
+        }
+        nbt.setBoolean("Enchanted", enchanted);
+        nbt.setBoolean("Mossy", mossy);
+        setString(nbt, "Owner", owner);
+        return nbt;
+    }
+
+    public static GraveData readFromNBT(NBTTagCompound nbt) {
+        List<ItemStack> items = null;
+        Map<ItemStack, Integer> playerSlots = new IdentityHashMap<>();
+        if (nbt.hasKey("Items")) {
+            NBTTagList list = nbt.getTagList("Items", 10);
+            items = new ArrayList<>(list.tagCount());
+            for (int i = 0; i < list.tagCount(); i++) {
+                NBTTagCompound stackNBT = list.getCompoundTagAt(i);
+                ItemStack stack = new ItemStack(stackNBT);
+                if (!stack.isEmpty()) {
+                    items.add(stack);
+                    if (stackNBT.hasKey("PlayerSlot")) {
+                        playerSlots.put(stack, stackNBT.getInteger("PlayerSlot"));
+                    }
+                }
+            }
+        }
+        ItemStack sword = nbt.hasKey("Sword") ? new ItemStack(nbt.getCompoundTag("Sword")) : null;
+
+        return new GraveData(getString(nbt, "Name"), getString(nbt, "DeathText"), getString(nbt, "KillerName"),
+                getString(nbt, "KillerNameForItem"), items, playerSlots, nbt.getInteger("Age"), EnumGraves.getById(nbt.getInteger("Grave")),
+                sword, nbt.getBoolean("Enchanted"), nbt.getBoolean("Mossy"), getString(nbt, "Owner"));
+    }
+
+    private static void setString(NBTTagCompound nbt, String key, String value) {
+        if (value != null) {
+            nbt.setString(key, value);
+        }
+    }
+
+    private static String getString(NBTTagCompound nbt, String key) {
+        return nbt.hasKey(key) ? nbt.getString(key) : null;
+    }
+}
@@ -12,6 +12,7 @@ import net.minecraft.init.Items;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.DamageSource;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.NonNullList;
@@ -19,7 +20,6 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.text.translation.I18n;
 import net.minecraft.world.World;
-import net.minecraftforge.common.BiomeDictionary;
 import net.minecraftforge.event.entity.living.LivingDeathEvent;
 import net.minecraftforge.items.CapabilityItemHandler;
 import net.minecraftforge.items.IItemHandler;
@@ -31,6 +31,7 @@ import nightkosh.gravestone.api.grave_items.*;
 import nightkosh.gravestone.api.grave_position.IGravePositionHandler;
 import nightkosh.gravestone.block.BlockGraveStone;
 import nightkosh.gravestone.block.enums.EnumGraves;
+import nightkosh.gravestone.capability.Backup;
 import nightkosh.gravestone.config.Config;
 import nightkosh.gravestone.core.GSBlock;
 import nightkosh.gravestone.core.MobHandler;
@@ -169,20 +170,20 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
             }
         }
 
-        long spawnTime = MobHandler.getAndRemoveSpawnTime(villager);
+        long spawnTime = MobHandler.getSpawnTimeForDeath(villager);
         createGrave(villager, damageSource, items, GraveGenerationHelper.EnumGraveTypeByEntity.VILLAGERS_GRAVES, true, spawnTime);
     }
 
     public static void createDogGrave(EntityWolf dog, DamageSource damageSource) {
         if (dog.isTamed()) {
-            long spawnTime = MobHandler.getAndRemoveSpawnTime(dog);
+            long spawnTime = MobHandler.getSpawnTimeForDeath(dog);
             createGrave(dog, damageSource, getDogsItems(dog, damageSource), EnumGraveTypeByEntity.DOGS_GRAVES, false, spawnTime);
         }
     }
 
     public static void createCatGrave(EntityOcelot cat, DamageSource damageSource) {
         if (cat.isTamed()) {
-            long spawnTime = MobHandler.getAndRemoveSpawnTime(cat);
+            long spawnTime = MobHandler.getSpawnTimeForDeath(cat);
             createGrave(cat, damageSource, getCatsItems(cat, damageSource), EnumGraveTypeByEntity.CATS_GRAVES, false, spawnTime);
         }
     }
@@ -227,7 +228,7 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
                 items.addAll(additionalItems.addItems(horse, damageSource));
             }
 
-            long spawnTime = MobHandler.getAndRemoveSpawnTime(horse);
+            long spawnTime = MobHandler.getSpawnTimeForDeath(horse);
             createGrave(horse, damageSource, items, EnumGraveTypeByEntity.HORSE_GRAVES, false, spawnTime);
         }
     }
@@ -391,64 +392,133 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
             GSLogger.logInfo("Position of grave was changed by other mod");
         } else {
             direction = EnumFacing.getHorizontal(MathHelper.floor((double) (entity.rotationYaw * 4 / 360F) + 0.5) & 3);
-            newPos = findPlaceForGrave(world, entity, pos, damageSource);
-            newWorld = world;
         }
 
-        BackupsHelper.addBackup(entity, newWorld, newPos, items);
+        String owner = null;
+        if (entity instanceof EntityPlayer) {
+            owner = entity.getUniqueID().toString();
+        } else if (entity instanceof EntityTameable && ((EntityTameable) entity).isTamed() && ((EntityTameable) entity).getOwner() != null) {
+            owner = ((EntityTameable) entity).getOwner().getUniqueID().toString();
+        }
+        GraveData graveData = new GraveData(deathInfo, items, InventorySlotsHelper.getAndRemoveSlots(entity), age,
+                graveInfo.getGrave(), graveInfo.getSword(), graveInfo.isEnchanted(), graveInfo.isMossy(), owner);
+
+        if (Config.deferGravesCreation) {
+            // backup position will be changed after grave creation, graves are merged at creation too
+            Backup backup = hasCustomLocation ? BackupsHelper.addBackup(entity, newWorld, newPos, items) :
+                    BackupsHelper.addBackup(entity, world, pos, items);
+            GraveCreationQueue.add(new GraveCreationQueue.Request(world, pos, newWorld, newPos, direction, graveData, backup,
+                    entity instanceof EntityPlayer));
+        } else {
+            if (!hasCustomLocation && entity instanceof EntityPlayer) {
+                BlockPos gravePos = mergeWithNearbyGrave(world, pos, graveData);
+                if (gravePos != null) {
+                    BackupsHelper.addBackup(entity, world, gravePos, items);
+                    return;
+                }
+            }
+            if (!hasCustomLocation) {
+                newPos = findPlaceForGrave(world, pos);
+                newWorld = world;
+            }
+            BackupsHelper.addBackup(entity, newWorld, newPos, items);
+            createGrave(world, pos, newWorld, newPos, direction, graveData);
+        }
+    }
+
+    /**
+     * Adds items to the nearest grave of the same owner in the merge radius.
+     * Graves are taken from the owner's graves index, graves in not loaded chunks are ignored.
+     *
+     * @return position of the grave or null if there is no grave to merge with
+     */
+    public static BlockPos mergeWithNearbyGrave(World world, BlockPos pos, GraveData graveData) {
+        if (Config.gravesMergeRadius <= 0 || graveData.getOwner() == null) {
+            return null;
+        }
+        int dimension = world.provider.getDimension();
+        double nearestDistanceSq = Config.gravesMergeRadius * Config.gravesMergeRadius;
+        GravesIndex.GraveEntry nearestGrave = null;
+        for (GravesIndex.GraveEntry grave : GravesIndex.get(world).getOwnerGraves(graveData.getOwner())) {
+            if (grave.getDimension() == dimension && !grave.isPetGrave()) {
+                double distanceSq = grave.getPos().distanceSq(pos);
+                if (distanceSq <= nearestDistanceSq && world.isBlockLoaded(grave.getPos())) {
+                    nearestDistanceSq = distanceSq;
+                    nearestGrave = grave;
+                }
+            }
+        }
+        if (nearestGrave == null) {
+            return null;
+        }
 
+        TileEntity tileEntity = world.getTileEntity(nearestGrave.getPos());
+        if (!(tileEntity instanceof TileEntityGraveStone)) {
+            return null;
+        }
+        graveData.mergeInto((TileEntityGraveStone) tileEntity);
+        // grave's lifetime starts again from the last death
+        GravesIndex.get(world).addGrave((TileEntityGraveStone) tileEntity, world.getTotalWorldTime());
+
+        BlockPos gravePos = nearestGrave.getPos();
+        GSLogger.logInfoGrave("Add " + graveData.getName() + "'s items to the grave at " + gravePos.getX() + "x" + gravePos.getY() + "x" + gravePos.getZ());
+        return gravePos;
+    }
+
+    /**
+     * Creates grave at newPos. If chunk at newPos is not loaded and only loaded chunks can be used
+     * grave will be created after the chunk loading.
+     */
+    public static void createGrave(World world, BlockPos pos, World newWorld, BlockPos newPos, EnumFacing direction, GraveData graveData) {
+        if (newPos != null && Config.placeGravesOnlyInLoadedChunks && !newWorld.isBlockLoaded(newPos)) {
+            PendingGraves.get(newWorld).add(newPos, direction, graveData);
+            GSLogger.logInfoGrave("Creation of " + graveData.getName() + "'s grave at " + newPos.getX() + "x" + newPos.getY() + "x" + newPos.getZ() +
+                    " was postponed until the chunk will be loaded");
+        } else {
+            placeGrave(world, pos, newWorld, newPos, direction, graveData);
+        }
+    }
+
+    /**
+     * Creates grave at newPos or drops grave and it's content at the death position if newPos is null
+     */
+    public static void placeGrave(World world, BlockPos pos, World newWorld, BlockPos newPos, EnumFacing direction, GraveData graveData) {
         if (newPos != null) {
             newWorld.setBlockState(newPos, GSBlock.GRAVE_STONE.getDefaultState().withProperty(BlockGraveStone.FACING, direction), 2);
             TileEntityGraveStone tileEntity = (TileEntityGraveStone) newWorld.getTileEntity(newPos);
 
             if (tileEntity != null) {
-                if (graveInfo.getSword() != null) {
-                    tileEntity.setSword(graveInfo.getSword());
-                }
-
-                tileEntity.getDeathTextComponent().setLocalized();
-                tileEntity.getDeathTextComponent().setName(deathInfo.getName());
-                tileEntity.getDeathTextComponent().setDeathText(deathInfo.getDeathMessage());
-                tileEntity.getDeathTextComponent().setKillerName(deathInfo.getKillerName());
-                tileEntity.getInventory().setItems(items);
-                tileEntity.setGraveType(graveInfo.getGrave().ordinal());
-                tileEntity.setAge(age);
-                tileEntity.setEnchanted(graveInfo.isEnchanted());
-                tileEntity.setMossy(graveInfo.isMossy());
-                if (entity instanceof EntityPlayer) {
-                    tileEntity.setOwner(entity.getUniqueID().toString());
-                } else if (entity instanceof EntityTameable && ((EntityTameable) entity).isTamed() && ((EntityTameable) entity).getOwner() != null) {
-                    tileEntity.setOwner(((EntityTameable) entity).getOwner().getUniqueID().toString());
-                }
+                graveData.fillTileEntity(tileEntity);
+                GravesIndex.get(newWorld).addGrave(tileEntity, newWorld.getTotalWorldTime());
             }
-            GSLogger.logInfoGrave("Create " + deathInfo.getName() + "'s grave at " + newPos.getX() + "x" + newPos.getY() + "x" + newPos.getZ());
+            GSLogger.logInfoGrave("Create " + graveData.getName() + "'s grave at " + newPos.getX() + "x" + newPos.getY() + "x" + newPos.getZ());
         } else {
             ItemStack itemStack = new ItemStack(Item.getItemFromBlock(GSBlock.GRAVE_STONE), 1);
-            itemStack.setItemDamage(graveInfo.getGrave().ordinal());
+            itemStack.setItemDamage(graveData.getGrave().ordinal());
             NBTTagCompound nbt = new NBTTagCompound();
             nbt.setBoolean("isLocalized", true);
-            nbt.setString("name", deathInfo.getName());
-            nbt.setString("DeathText", deathInfo.getDeathMessage());
-            nbt.setString("KillerName", deathInfo.getKillerNameForTE());
-            nbt.setBoolean("Enchanted", graveInfo.isEnchanted());
-            nbt.setBoolean("Mossy", graveInfo.isMossy());
-            nbt.setInteger("Age", age);
-
-            if (graveInfo.getGrave() == EnumGraves.SWORD) {
-                GraveStoneHelper.addSwordInfo(nbt, graveInfo.getSword());
+            nbt.setString("name", graveData.getName());
+            nbt.setString("DeathText", graveData.getDeathText());
+            nbt.setString("KillerName", graveData.getKillerNameForItem());
+            nbt.setBoolean("Enchanted", graveData.isEnchanted());
+            nbt.setBoolean("Mossy", graveData.isMossy());
+            nbt.setInteger("Age", graveData.getAge());
+
+            if (graveData.getGrave() == EnumGraves.SWORD) {
+                GraveStoneHelper.addSwordInfo(nbt, graveData.getSword());
             }
 
             itemStack.setTagCompound(nbt);
             GraveInventory.dropItem(itemStack, world, pos);
 
-            if (items != null) {
-                for (ItemStack item : items) {
+            if (graveData.getItems() != null) {
+                for (ItemStack item : graveData.getItems()) {
                     if (item != null) {
                         GraveInventory.dropItem(item, world, pos);
                     }
                 }
             }
-            GSLogger.logInfoGrave("Can not create " + deathInfo.getName() + "'s grave at " + pos.getX() + "x" + pos.getY() + "x" + pos.getZ());
+            GSLogger.logInfoGrave("Can not create " + graveData.getName() + "'s grave at " + pos.getX() + "x" + pos.getY() + "x" + pos.getZ());
         }
     }
 
@@ -488,12 +558,12 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
     }
 
     private static boolean isInRestrictedArea(World world, BlockPos pos) {
-        return Config.restrictGraveGenerationInArea.stream().anyMatch((area) -> area.isInArea(world, pos));
+        return RestrictedAreasIndex.isInRestrictedArea(world, pos);
     }
 
     @Override
     public boolean isMagicDamage(DamageSource damageSource) {
-        return DamageSource.MAGIC.equals(damageSource) || damageSource.damageType.toLowerCase().contains("magic");
+        return DamageSource.MAGIC.equals(damageSource) || isMagicDamage(damageSource.damageType);
     }
 
     @Override
@@ -502,8 +572,7 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
     }
 
     public static boolean isMossyGrave(World world, BlockPos pos, EnumGraveMaterial graveMaterial) {
-        Set<BiomeDictionary.Type> biomeTypesList = BiomeDictionary.getTypes(world.getBiome(pos));
-        return graveMaterial != EnumGraveMaterial.OTHER && (biomeTypesList.contains(BiomeDictionary.Type.JUNGLE) || biomeTypesList.contains(BiomeDictionary.Type.SWAMP));
+        return graveMaterial != EnumGraveMaterial.OTHER && BiomeGravesCache.isMossy(world.getBiome(pos));
     }
 
     public static boolean chooseGraveTypeByAgeOrLevel(Entity entity, EnumGraveTypeByEntity graveTypeByEntity, int age) {
@@ -576,7 +645,9 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
         EnumGraveType[] graveTypes = null;
         EnumGraveMaterial material;
 
-        if (isFireDamage(damageSource, damageSource.damageType) || isLavaDamage(damageSource, damageSource.damageType)) {
+        int damageCategories = DamageTypeClassifier.getCategories(damageSource.damageType);
+        if (DamageSource.IN_FIRE.equals(damageSource) || DamageSource.ON_FIRE.equals(damageSource) || DamageSource.LAVA.equals(damageSource) ||
+                (damageCategories & (DamageTypeClassifier.EnumDamageCategory.FIRE.bit | DamageTypeClassifier.EnumDamageCategory.LAVA.bit)) != 0) {
             material = EnumGraveMaterial.OBSIDIAN;
         } else if (graveTypeByEntity == EnumGraveTypeByEntity.PLAYER_GRAVES) {
             //TODO drown
@@ -605,7 +676,7 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
     }
 
     public static boolean isFireDamage(String damageType) {
-        return damageType.toLowerCase().contains("nfire");
+        return DamageTypeClassifier.is(damageType, DamageTypeClassifier.EnumDamageCategory.FIRE);
     }
 
     public static boolean isLavaDamage(DamageSource damageSource, String damageType) {
@@ -613,68 +684,31 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
     }
 
     public static boolean isLavaDamage(String damageType) {
-        return damageType.toLowerCase().contains("lava");
+        return DamageTypeClassifier.is(damageType, DamageTypeClassifier.EnumDamageCategory.LAVA);
     }
 
     public static boolean isMagicDamage(String damageText) {
-        return damageText.toLowerCase().contains("magic");
+        return DamageTypeClassifier.is(damageText, DamageTypeClassifier.EnumDamageCategory.MAGIC);
     }
 
     public static boolean isExplosionDamage(DamageSource damageSource) {
-        return isBlastDamage(damageSource.damageType) || isFireballDamage(damageSource.damageType);
+        return (DamageTypeClassifier.getCategories(damageSource.damageType) &
+                (DamageTypeClassifier.EnumDamageCategory.BLAST.bit | DamageTypeClassifier.EnumDamageCategory.FIREBALL.bit)) != 0;
     }
 
     public static boolean isBlastDamage(String damageType) {
-        return damageType.toLowerCase().contains("explosion");
+        return DamageTypeClassifier.is(damageType, DamageTypeClassifier.EnumDamageCategory.BLAST);
     }
 
     public static boolean isFireballDamage(String damageType) {
-        return damageType.toLowerCase().contains("fireball");
+        return DamageTypeClassifier.is(damageType, DamageTypeClassifier.EnumDamageCategory.FIREBALL);
     }
 
+    /**
+     * Returned array is shared and must not be modified
+     */
     public static EnumGraveMaterial[] getGraveMaterialByBiomes(World world, BlockPos pos) {
-        Set<BiomeDictionary.Type> biomeTypesList = BiomeDictionary.getTypes(world.getBiome(pos));
-
-        ArrayList<EnumGraveMaterial> materials = new ArrayList<>();
-        if (biomeTypesList.contains(BiomeDictionary.Type.SANDY) || biomeTypesList.contains(BiomeDictionary.Type.BEACH)) {
-            materials.add(EnumGraveMaterial.SANDSTONE);
-        }
-        if (biomeTypesList.contains(BiomeDictionary.Type.JUNGLE) || biomeTypesList.contains(BiomeDictionary.Type.SWAMP)) {
-            materials.add(EnumGraveMaterial.STONE);
-        }
-        if (biomeTypesList.contains(BiomeDictionary.Type.MOUNTAIN)) {
-            materials.add(EnumGraveMaterial.GRANITE);
-        }
-        if (biomeTypesList.contains(BiomeDictionary.Type.HILLS)) {
-            materials.add(EnumGraveMaterial.ANDESITE);
-            materials.add(EnumGraveMaterial.DIORITE);
-        }
-        if (biomeTypesList.contains(BiomeDictionary.Type.PLAINS) || biomeTypesList.contains(BiomeDictionary.Type.MUSHROOM)) {
-            materials.add(EnumGraveMaterial.STONE);
-        }
-        if (biomeTypesList.contains(BiomeDictionary.Type.FOREST)) {
-            materials.add(EnumGraveMaterial.WOOD);
-        }
-        if (biomeTypesList.contains(BiomeDictionary.Type.SNOWY)) {
-            materials.add(EnumGraveMaterial.ICE);
-        }
-        if (biomeTypesList.contains(BiomeDictionary.Type.NETHER)) {
-            materials.add(EnumGraveMaterial.QUARTZ);
-        }
-        if (biomeTypesList.contains(BiomeDictionary.Type.MESA)) {
-            materials.add(EnumGraveMaterial.RED_SANDSTONE);
-        }
-        // TODO if (biomeTypesList.contains(BiomeDictionary.Type.END)) {} ????????
-        if (biomeTypesList.contains(BiomeDictionary.Type.WATER)) {
-            materials.add(EnumGraveMaterial.PRIZMARINE);
-        }
-
-        if (materials.isEmpty()) {
-            materials.add(EnumGraveMaterial.STONE);
-        }
-
-        EnumGraveMaterial[] materialsArray = new EnumGraveMaterial[materials.size()];
-        return materials.toArray(materialsArray);
+        return BiomeGravesCache.getMaterials(world.getBiome(pos));
     }
 
     public static EnumGraves getGraveTypeByBiomes(World world, BlockPos pos, EnumGraveTypeByEntity graveTypeByEntity, DamageSource damageSource) {
@@ -689,7 +723,7 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
         return getGraveType(type, materialsArray);
     }
 
-    private static BlockPos findPlaceForGrave(World world, Entity entity, BlockPos pos, DamageSource damageSource) {
+    public static BlockPos findPlaceForGrave(World world, BlockPos pos) {
         if (pos.getY() <= 0) {
             BlockPos groundPos = new BlockPos(pos.getX(), 0, pos.getZ());
             if (world.isAirBlock(groundPos) && world.isAirBlock(groundPos.up())) {
@@ -700,68 +734,7 @@ public class GraveGenerationHelper implements IGraveStoneHelper {
             }
         }
 
-        int x = pos.getX();
-        int y = pos.getY();
-        int z = pos.getZ();
-        int newY = getGround(world, x, y, z);
-
-        if (canGenerateGraveAtCoordinates(world, new BlockPos(x, newY, z))) {
-            return new BlockPos(x, newY, z);
-        } else {
-            int dx = 1;
-            int dz = 1;
-
-            while (Math.abs(dx) < 9 && Math.abs(dz) < 9) {
-                if (dx < 0) {
-                    for (int newX = x - 1; newX >= x + dx; newX--) {
-                        newY = getGround(world, newX, y, z);
-                        if (canGenerateGraveAtCoordinates(world, new BlockPos(newX, newY, z))) {
-                            return new BlockPos(newX, newY, z);
-                        }
-                    }
-                } else {
-                    for (int newX = x + 1; newX <= x + dx; newX++) {
-                        newY = getGround(world, newX, y, z);
-                        if (canGenerateGraveAtCoordinates(world, new BlockPos(newX, newY, z))) {
-                            return new BlockPos(newX, newY, z);
-                        }
-                    }
-                }
-                x += dx;
-
-                if (dz < 0) {
-                    for (int newZ = z - 1; newZ >= z + dz; newZ--) {
-                        newY = getGround(world, x, y, newZ);
-                        if (canGenerateGraveAtCoordinates(world, new BlockPos(x, newY, newZ))) {
-                            return new BlockPos(x, newY, newZ);
-                        }
-                    }
-                } else {
-                    for (int newZ = z + 1; newZ <= z + dz; newZ++) {
-                        newY = getGround(world, x, y, newZ);
-                        if (canGenerateGraveAtCoordinates(world, new BlockPos(x, newY, newZ))) {
-                            return new BlockPos(x, newY, newZ);
-                        }
-                    }
-                }
-                z += dz;
-
-                if (dx < 0) {
-                    dx = Math.abs(dx) + 1;
-                } else {
-                    dx = (dx + 1) * -1;
-                }
-
-                if (dz < 0) {
-                    dz = Math.abs(dz) + 1;
-                } else {
-                    dz = (dz + 1) * -1;
-                }
-
-            }
-        }
-
-        return null;
+        return new GravePlacementEngine(world, pos, Config.placeGravesOnlyInLoadedChunks).findPlace();
     }
 
     public static int getGround(World world, int x, int y, int z) {
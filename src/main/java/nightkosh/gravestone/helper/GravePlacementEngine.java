@@ -0,0 +1,220 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import nightkosh.gravestone.config.Config;
+import nightkosh.gravestone.core.logger.GSLogger;
+
+import java.util.Arrays;
+
+/**
+ * GraveStone mod
+ *
+ * Searches place for grave around the death position.
+ * Search order is the same as in the old GraveGenerationHelper.findPlaceForGrave - spiral around the death column.
+ * Block states are read directly from the chunks, ground level of each column is computed only once
+ * and empty chunk sections are skipped without reading them block by block.
+ * Total amount of block reads per search is limited by the config.
+ * If onlyLoadedChunks is true columns in not loaded chunks are skipped, so search never loads or generates chunks.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class GravePlacementEngine {
+
+    public static final int SEARCH_RADIUS = 8;
+    private static final int SEARCH_SIZE = SEARCH_RADIUS * 2 + 1;
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int BUDGET_EXCEEDED = Integer.MIN_VALUE + 1;
+    private static final int NOT_LOADED = Integer.MIN_VALUE + 2;
+
+    private final World world;
+    private final boolean onlyLoadedChunks;
+    private final int centerX;
+    private final int centerZ;
+    private final int startY;
+    private final int[] groundCache = new int[SEARCH_SIZE * SEARCH_SIZE];
+    private final BlockPos.MutableBlockPos mutablePos = new BlockPos.MutableBlockPos();
+
+    private Chunk chunk;
+    private int reads = 0;
+
+    public GravePlacementEngine(World world, BlockPos pos, boolean onlyLoadedChunks) {
+        this.world = world;
+        this.onlyLoadedChunks = onlyLoadedChunks;
+        this.centerX = pos.getX();
+        this.centerZ = pos.getZ();
+        this.startY = pos.getY();
+        Arrays.fill(groundCache, UNKNOWN);
+    }
+
+    /**
+     * Returns position for grave or null if there is no appropriate place
+     */
+    public BlockPos findPlace() {
+        int x = centerX;
+        int z = centerZ;
+
+        if (canGenerateGrave(x, z)) {
+            return getResult(x, z);
+        }
+        int dx = 1;
+        int dz = 1;
+
+        while (Math.abs(dx) <= SEARCH_RADIUS && Math.abs(dz) <= SEARCH_RADIUS) {
+            if (dx < 0) {
+                for (int newX = x - 1; newX >= x + dx; newX--) {
+                    if (canGenerateGrave(newX, z)) {
+                        return getResult(newX, z);
+                    }
+                }
+            } else {
+                for (int newX = x + 1; newX <= x + dx; newX++) {
+                    if (canGenerateGrave(newX, z)) {
+                        return getResult(newX, z);
+                    }
+                }
+            }
+            x += dx;
+
+            if (dz < 0) {
+                for (int newZ = z - 1; newZ >= z + dz; newZ--) {
+                    if (canGenerateGrave(x, newZ)) {
+                        return getResult(x, newZ);
+                    }
+                }
+            } else {
+                for (int newZ = z + 1; newZ <= z + dz; newZ++) {
+                    if (canGenerateGrave(x, newZ)) {
+                        return getResult(x, newZ);
+                    }
+                }
+            }
+            z += dz;
+
+            if (dx < 0) {
+                dx = Math.abs(dx) + 1;
+            } else {
+                dx = (dx + 1) * -1;
+            }
+
+            if (dz < 0) {
+                dz = Math.abs(dz) + 1;
+            } else {
+                dz = (dz + 1) * -1;
+            }
+
+            if (isBudgetExceeded()) {
+                GSLogger.logInfoGrave("Search of place for grave was stopped after " + reads + " block reads");
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    public int getReadsCount() {
+        return reads;
+    }
+
+    private BlockPos getResult(int x, int z) {
+        return new BlockPos(x, getGround(x, z), z);
+    }
+
+    private boolean isBudgetExceeded() {
+        return reads >= Config.maxGravePlacementBlockReads;
+    }
+
+    private boolean canGenerateGrave(int x, int z) {
+        int y = getGround(x, z);
+        if (y == BUDGET_EXCEEDED || y == NOT_LOADED) {
+            return false;
+        }
+        IBlockState stateDown = getBlockState(x, y - 1, z);
+        if (!stateDown.getBlock().getMaterial(stateDown).isSolid() || !stateDown.getBlock().isFullCube(stateDown)) {
+            return false;
+        }
+        IBlockState state = getBlockState(x, y, z);
+        return isReplaceable(state, mutablePos.setPos(x, y, z));
+    }
+
+    /**
+     * Same as GraveGenerationHelper.getGround, but the result is cached for each column
+     */
+    private int getGround(int x, int z) {
+        int index = (x - centerX + SEARCH_RADIUS) * SEARCH_SIZE + (z - centerZ + SEARCH_RADIUS);
+        int ground = groundCache[index];
+        if (ground == UNKNOWN) {
+            ground = computeGround(x, z);
+            groundCache[index] = ground;
+        }
+        return ground;
+    }
+
+    private int computeGround(int x, int z) {
+        if (getChunk(x, z) == null) {
+            return NOT_LOADED;
+        }
+        int y = startY;
+        while (y > 1) {
+            if (isBudgetExceeded()) {
+                return BUDGET_EXCEEDED;
+            }
+            int belowY = y - 1;
+            if (belowY >= world.getHeight()) {
+                // there is nothing above the world height
+                y = world.getHeight();
+                continue;
+            }
+            ExtendedBlockStorage storage = getChunk(x, z).getBlockStorageArray()[belowY >> 4];
+            if (storage == Chunk.NULL_BLOCK_STORAGE || storage.isEmpty()) {
+                // whole section is filled with air
+                reads++;
+                y = Math.max(belowY & ~15, 1);
+                continue;
+            }
+            IBlockState state = getBlockState(x, belowY, z);
+            if (isReplaceable(state, mutablePos.setPos(x, belowY, z))) {
+                y--;
+            } else {
+                break;
+            }
+        }
+        return y;
+    }
+
+    private boolean isReplaceable(IBlockState state, BlockPos pos) {
+        Material material = state.getBlock().getMaterial(state);
+        return state.getBlock().isAir(state, world, pos) || material.isLiquid() || material.isReplaceable();
+    }
+
+    private IBlockState getBlockState(int x, int y, int z) {
+        reads++;
+        if (y < 0 || y >= world.getHeight()) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return getChunk(x, z).getBlockState(x, y, z);
+    }
+
+    private Chunk getChunk(int x, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        if (chunk == null || chunk.x != chunkX || chunk.z != chunkZ) {
+            if (onlyLoadedChunks) {
+                Chunk loadedChunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+                if (loadedChunk == null) {
+                    return null;
+                }
+                chunk = loadedChunk;
+            } else {
+                chunk = world.getChunkFromChunkCoords(chunkX, chunkZ);
+            }
+        }
+        return chunk;
+    }
+}
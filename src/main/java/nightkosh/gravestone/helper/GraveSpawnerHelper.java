@@ -14,6 +14,13 @@ public class GraveSpawnerHelper {
     }
 
     public ISpawner getSpawner(TileEntityGraveStone te) {
-        return new ISpawner() {};
+        return NO_SPAWNER;
     }
+
+    private static final ISpawner NO_SPAWNER = new ISpawner() {
+        @Override
+        public boolean isUpdateRequired() {
+            return false;
+        }
+    };
 }
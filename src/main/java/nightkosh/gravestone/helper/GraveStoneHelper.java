@@ -127,10 +127,49 @@ public class GraveStoneHelper {
         }
 
         public boolean isInArea(World world, BlockPos pos) {
-            return world.provider.getDimension() == dimensionId &&
-                    pos.getX() >= firstPoint.getX() && pos.getX() <= lastPoint.getX() &&
-                    pos.getY() >= firstPoint.getY() && pos.getY() <= lastPoint.getY() &&
-                    pos.getZ() >= firstPoint.getZ() && pos.getZ() <= lastPoint.getZ();
+            return world.provider.getDimension() == dimensionId && isInArea(pos.getX(), pos.getY(), pos.getZ());
+        }
+
+        public boolean isInArea(int x, int y, int z) {
+            return x >= firstPoint.getX() && x <= lastPoint.getX() &&
+                    y >= firstPoint.getY() && y <= lastPoint.getY() &&
+                    z >= firstPoint.getZ() && z <= lastPoint.getZ();
+        }
+
+        /**
+         * Area with the first point greater than the last point doesn't contain any position
+         */
+        public boolean isEmpty() {
+            return firstPoint.getX() > lastPoint.getX() || firstPoint.getY() > lastPoint.getY() || firstPoint.getZ() > lastPoint.getZ();
+        }
+
+        public int getDimensionId() {
+            return dimensionId;
+        }
+
+        public BlockPos getFirstPoint() {
+            return firstPoint;
+        }
+
+        public BlockPos getLastPoint() {
+            return lastPoint;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RestrictedArea)) {
+                return false;
+            }
+            RestrictedArea area = (RestrictedArea) obj;
+            return dimensionId == area.dimensionId && firstPoint.equals(area.firstPoint) && lastPoint.equals(area.lastPoint);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * dimensionId + firstPoint.hashCode()) + lastPoint.hashCode();
         }
 
         public static RestrictedArea getFromString(String area) {
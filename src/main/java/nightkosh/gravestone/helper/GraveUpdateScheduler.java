@@ -0,0 +1,102 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import nightkosh.gravestone.tileentity.TileEntityGraveStone;
+
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Graves are not ticking tile entities. Only graves which have a real spawner or fog handler
+ * (registered by other mods) are added here and updated once per world tick.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class GraveUpdateScheduler {
+
+    public static final GraveUpdateScheduler INSTANCE = new GraveUpdateScheduler();
+
+    // server and client worlds are updated by different threads
+    private final Map<World, WorldGraves> serverGraves = new HashMap<>();
+    private final Map<World, WorldGraves> clientGraves = new HashMap<>();
+
+    private GraveUpdateScheduler() {
+    }
+
+    public void add(TileEntityGraveStone te) {
+        World world = te.getWorld();
+        if (world != null) {
+            getGravesMap(world).computeIfAbsent(world, w -> new WorldGraves()).add(te);
+        }
+    }
+
+    public void remove(TileEntityGraveStone te) {
+        World world = te.getWorld();
+        if (world != null) {
+            WorldGraves graves = getGravesMap(world).get(world);
+            if (graves != null) {
+                graves.remove(te);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && !event.world.isRemote) {
+            WorldGraves graves = serverGraves.get(event.world);
+            if (graves != null) {
+                graves.update();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            for (WorldGraves graves : clientGraves.values()) {
+                graves.update();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+        getGravesMap(event.getWorld()).remove(event.getWorld());
+    }
+
+    private Map<World, WorldGraves> getGravesMap(World world) {
+        return world.isRemote ? clientGraves : serverGraves;
+    }
+
+    private static class WorldGraves {
+        private final Set<TileEntityGraveStone> graves = new LinkedHashSet<>();
+        private TileEntityGraveStone[] gravesArray = new TileEntityGraveStone[0];
+        private boolean isChanged = false;
+
+        public void add(TileEntityGraveStone te) {
+            isChanged |= graves.add(te);
+        }
+
+        public void remove(TileEntityGraveStone te) {
+            isChanged |= graves.remove(te);
+        }
+
+        public void update() {
+            if (isChanged) {
+                gravesArray = graves.toArray(new TileEntityGraveStone[graves.size()]);
+                isChanged = false;
+            }
+            // graves can be removed during the update - array will be rebuilt at the next tick
+            for (TileEntityGraveStone te : gravesArray) {
+                if (!te.isInvalid() && te.hasWorld()) {
+                    te.update();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.DimensionManager;
+import nightkosh.gravestone.block.enums.EnumGraves;
+import nightkosh.gravestone.config.Config;
+import nightkosh.gravestone.core.logger.GSLogger;
+import nightkosh.gravestone.tileentity.TileEntityGraveStone;
+
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Removes graves after the lifetime set in the config. Lifetimes of empty graves, graves with loot and pets graves are separate.
+ * Indexed graves are scheduled on a timing wheel by their creation time, so only expired graves are processed.
+ * Expired graves in not loaded chunks are removed after loading of their chunks.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class GravesExpiry {
+
+    public static final long TICKS_PER_DAY = 24000;
+    /**
+     * Timing wheel unit in ticks - one minute
+     */
+    private static final long TIME_UNIT = 1200;
+
+    private final TimingWheel<GravesIndex.GraveEntry> wheel = new TimingWheel<>();
+    private final Map<Integer, Map<Long, List<GravesIndex.GraveEntry>>> waitingGraves = new HashMap<>();
+    private final List<GravesIndex.GraveEntry> loadedGraves = new ArrayList<>();
+
+    public void schedule(GravesIndex.GraveEntry entry) {
+        long time = getExpiryTime(entry);
+        if (time == Long.MAX_VALUE) {
+            wheel.remove(entry);
+        } else {
+            wheel.add(entry, time / TIME_UNIT);
+        }
+    }
+
+    public void cancel(GravesIndex.GraveEntry entry) {
+        wheel.remove(entry);
+    }
+
+    /**
+     * Returns total world time at which grave will expire or Long.MAX_VALUE if it never expires
+     */
+    public static long getExpiryTime(GravesIndex.GraveEntry entry) {
+        int lifetime = getLifetime(entry);
+        return lifetime > 0 ? entry.getCreationTime() + lifetime * TICKS_PER_DAY : Long.MAX_VALUE;
+    }
+
+    private static int getLifetime(GravesIndex.GraveEntry entry) {
+        if (entry.isPetGrave()) {
+            return Config.petGravesLifetime;
+        } else if (entry.getItemsCount() == 0 && EnumGraves.getById(entry.getGraveType()) != EnumGraves.SWORD) {
+            return Config.emptyGravesLifetime;
+        }
+        return Config.gravesWithLootLifetime;
+    }
+
+    /**
+     * Returns true if items of the grave can be looted by anyone
+     */
+    public static boolean areItemsReleased(TileEntityGraveStone tileEntity) {
+        if (Config.releaseGraveItemsAfterDays <= 0 || !tileEntity.hasWorld() || tileEntity.getWorld().isRemote) {
+            return false;
+        }
+        World world = tileEntity.getWorld();
+        GravesIndex.GraveEntry entry = GravesIndex.get(world).getGrave(world.provider.getDimension(), tileEntity.getPos());
+        return entry != null && world.getTotalWorldTime() - entry.getCreationTime() >= Config.releaseGraveItemsAfterDays * TICKS_PER_DAY;
+    }
+
+    public static void onServerTick(MinecraftServer server) {
+        WorldServer world = server.getWorld(0);
+        if (world != null) {
+            GravesIndex index = GravesIndex.get(world);
+            index.getExpiry().removeExpiredGraves(index, world.getTotalWorldTime());
+        }
+    }
+
+    public static void onChunkLoad(World world, int chunkX, int chunkZ) {
+        GravesExpiry expiry = GravesIndex.get(world).getExpiry();
+        Map<Long, List<GravesIndex.GraveEntry>> dimensionGraves = expiry.waitingGraves.get(world.provider.getDimension());
+        if (dimensionGraves != null) {
+            List<GravesIndex.GraveEntry> chunkGraves = dimensionGraves.remove(ChunkPos.asLong(chunkX, chunkZ));
+            if (chunkGraves != null) {
+                // blocks can't be changed during chunk loading - graves will be removed at the next tick
+                expiry.loadedGraves.addAll(chunkGraves);
+            }
+        }
+    }
+
+    private void removeExpiredGraves(GravesIndex index, long time) {
+        List<GravesIndex.GraveEntry> graves = wheel.advance(time / TIME_UNIT);
+        if (!loadedGraves.isEmpty()) {
+            graves.addAll(loadedGraves);
+            loadedGraves.clear();
+        }
+        for (GravesIndex.GraveEntry entry : graves) {
+            // grave could be removed or rescheduled after it was put in to the waiting list
+            if (index.getGrave(entry.getDimension(), entry.getPos()) != entry || wheel.contains(entry)) {
+                continue;
+            }
+            World world = DimensionManager.getWorld(entry.getDimension());
+            if (world != null && world.isBlockLoaded(entry.getPos())) {
+                removeGrave(index, world, entry.getPos());
+            } else {
+                BlockPos pos = entry.getPos();
+                waitingGraves.computeIfAbsent(entry.getDimension(), dimension -> new HashMap<>())
+                        .computeIfAbsent(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), chunk -> new ArrayList<>())
+                        .add(entry);
+            }
+        }
+    }
+
+    private static void removeGrave(GravesIndex index, World world, BlockPos pos) {
+        TileEntity tileEntity = world.getTileEntity(pos);
+        if (tileEntity instanceof TileEntityGraveStone) {
+            if (Config.showGravesRemovingMessages) {
+                GSLogger.logInfoGrave("Remove expired grave at " + pos.getX() + "/" + pos.getY() + "/" + pos.getZ());
+            }
+            // grave content is dropped and grave is removed from the index by the block
+            world.setBlockToAir(pos);
+        } else {
+            index.removeGrave(world, pos);
+        }
+    }
+}
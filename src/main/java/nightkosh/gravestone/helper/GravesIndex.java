@@ -0,0 +1,317 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+import nightkosh.gravestone.api.grave.EnumGraveType;
+import nightkosh.gravestone.block.enums.EnumGraves;
+import nightkosh.gravestone.tileentity.TileEntityGraveStone;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Index of all graves of all dimensions. It is stored in the global world storage,
+ * so graves can be found without loading of worlds and chunks.
+ * Graves are added at creation and at loading of their chunks (so graves created before the index are added too),
+ * and removed when grave block is broken.
+ * Graves of each owner are indexed too, so graves of a player can be found without iteration over all graves.
+ * Indexed graves are scheduled for expiry by their creation time.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class GravesIndex extends WorldSavedData {
+
+    private static final String DATA_NAME = "gravestone_graves_index";
+
+    private final Map<Integer, Map<BlockPos, GraveEntry>> graves = new HashMap<>();
+    private final Map<String, Set<GraveEntry>> ownersGraves = new HashMap<>();
+    private final GravesExpiry expiry = new GravesExpiry();
+
+    public GravesIndex() {
+        this(DATA_NAME);
+    }
+
+    public GravesIndex(String name) {
+        super(name);
+    }
+
+    public static GravesIndex get(World world) {
+        MapStorage storage = world.getMapStorage();
+        GravesIndex data = (GravesIndex) storage.getOrLoadData(GravesIndex.class, DATA_NAME);
+        if (data == null) {
+            data = new GravesIndex();
+            storage.setData(DATA_NAME, data);
+        }
+        return data;
+    }
+
+    /**
+     * Adds grave to the index or updates it's entry if it is already indexed
+     */
+    public void addGrave(TileEntityGraveStone tileEntity, long creationTime) {
+        int dimension = tileEntity.getWorld().provider.getDimension();
+        GraveEntry entry = getGrave(dimension, tileEntity.getPos());
+        if (entry == null) {
+            entry = new GraveEntry(dimension, tileEntity.getPos().toImmutable(), creationTime);
+            graves.computeIfAbsent(dimension, dim -> new HashMap<>()).put(entry.pos, entry);
+            addOwnerGrave(entry);
+        } else {
+            entry.creationTime = creationTime;
+        }
+        updateEntry(entry, tileEntity);
+        expiry.schedule(entry);
+        markDirty();
+    }
+
+    /**
+     * Adds grave to the index if it is not indexed yet
+     */
+    public void addGraveIfAbsent(TileEntityGraveStone tileEntity) {
+        if (getGrave(tileEntity.getWorld().provider.getDimension(), tileEntity.getPos()) == null) {
+            addGrave(tileEntity, tileEntity.getWorld().getTotalWorldTime());
+        }
+    }
+
+    public void updateGrave(TileEntityGraveStone tileEntity) {
+        GraveEntry entry = getGrave(tileEntity.getWorld().provider.getDimension(), tileEntity.getPos());
+        if (entry != null && updateEntry(entry, tileEntity)) {
+            expiry.schedule(entry);
+            markDirty();
+        }
+    }
+
+    private boolean updateEntry(GraveEntry entry, TileEntityGraveStone tileEntity) {
+        String oldOwner = entry.owner;
+        if (entry.update(tileEntity)) {
+            if (!oldOwner.equals(entry.owner)) {
+                removeOwnerGrave(oldOwner, entry);
+                addOwnerGrave(entry);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void addOwnerGrave(GraveEntry entry) {
+        ownersGraves.computeIfAbsent(entry.owner, owner -> new HashSet<>()).add(entry);
+    }
+
+    private void removeOwnerGrave(String owner, GraveEntry entry) {
+        Set<GraveEntry> entries = ownersGraves.get(owner);
+        if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+            ownersGraves.remove(owner);
+        }
+    }
+
+    /**
+     * Updates size of the grave's saved data. Data is measured again only if items count or owner were changed
+     * since the last measurement, so unchanged graves are not serialized twice at each saving.
+     */
+    public void updateGraveSize(TileEntityGraveStone tileEntity, NBTTagCompound savedData) {
+        GraveEntry entry = getGrave(tileEntity.getWorld().provider.getDimension(), tileEntity.getPos());
+        if (entry != null && entry.isSizeOutdated) {
+            entry.isSizeOutdated = false;
+            int size = getSerializedSize(savedData);
+            if (entry.size != size) {
+                entry.size = size;
+                markDirty();
+            }
+        }
+    }
+
+    public void removeGrave(World world, BlockPos pos) {
+        Map<BlockPos, GraveEntry> dimensionGraves = graves.get(world.provider.getDimension());
+        GraveEntry entry = (dimensionGraves == null) ? null : dimensionGraves.remove(pos);
+        if (entry != null) {
+            removeOwnerGrave(entry.owner, entry);
+            expiry.cancel(entry);
+            if (dimensionGraves.isEmpty()) {
+                graves.remove(world.provider.getDimension());
+            }
+            markDirty();
+        }
+    }
+
+    public GraveEntry getGrave(int dimension, BlockPos pos) {
+        Map<BlockPos, GraveEntry> dimensionGraves = graves.get(dimension);
+        return dimensionGraves == null ? null : dimensionGraves.get(pos);
+    }
+
+    public Collection<GraveEntry> getGraves(int dimension) {
+        Map<BlockPos, GraveEntry> dimensionGraves = graves.get(dimension);
+        return dimensionGraves == null ? Collections.emptyList() : Collections.unmodifiableCollection(dimensionGraves.values());
+    }
+
+    /**
+     * Returns all graves of the owner
+     *
+     * @param owner owner's UUID
+     */
+    public Collection<GraveEntry> getOwnerGraves(String owner) {
+        Set<GraveEntry> entries = ownersGraves.get(owner);
+        return entries == null ? Collections.emptyList() : Collections.unmodifiableCollection(entries);
+    }
+
+    public GravesExpiry getExpiry() {
+        return expiry;
+    }
+
+    public Set<Integer> getDimensions() {
+        return Collections.unmodifiableSet(graves.keySet());
+    }
+
+    /**
+     * Returns size of the NBT in bytes
+     */
+    public static int getSerializedSize(NBTTagCompound nbt) {
+        DataOutputStream stream = new DataOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        try {
+            CompressedStreamTools.write(nbt, stream);
+        } catch (IOException e) {
+            return 0;
+        }
+        return stream.size();
+    }
+
+    @Override
+    public void readFromNBT(NBTTagCompound nbt) {
+        graves.clear();
+        ownersGraves.clear();
+        NBTTagList list = nbt.getTagList("Graves", 10);
+        for (int i = 0; i < list.tagCount(); i++) {
+            GraveEntry entry = GraveEntry.readFromNBT(list.getCompoundTagAt(i));
+            graves.computeIfAbsent(entry.dimension, dim -> new HashMap<>()).put(entry.pos, entry);
+            addOwnerGrave(entry);
+            expiry.schedule(entry);
+        }
+    }
+
+    @Override
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+        NBTTagList list = new NBTTagList();
+        for (Map<BlockPos, GraveEntry> dimensionGraves : graves.values()) {
+            for (GraveEntry entry : dimensionGraves.values()) {
+                list.appendTag(entry.writeToNBT(new NBTTagCompound()));
+            }
+        }
+        nbt.setTag("Graves", list);
+        return nbt;
+    }
+
+    public static class GraveEntry {
+        private final int dimension;
+        private final BlockPos pos;
+        private long creationTime;
+        private String owner = "";
+        private int graveType;
+        private int itemsCount;
+        private int size;
+        private boolean isSizeOutdated = true;
+
+        private GraveEntry(int dimension, BlockPos pos, long creationTime) {
+            this.dimension = dimension;
+            this.pos = pos;
+            this.creationTime = creationTime;
+        }
+
+        /**
+         * @return true if something was changed
+         */
+        private boolean update(TileEntityGraveStone tileEntity) {
+            String newOwner = (tileEntity.getOwner() == null) ? "" : tileEntity.getOwner();
+            int newItemsCount = tileEntity.getInventory().getItemsCount();
+            if (owner.equals(newOwner) && graveType == tileEntity.getGraveTypeNum() && itemsCount == newItemsCount) {
+                return false;
+            }
+            owner = newOwner;
+            graveType = tileEntity.getGraveTypeNum();
+            itemsCount = newItemsCount;
+            isSizeOutdated = true;
+            return true;
+        }
+
+        public int getDimension() {
+            return dimension;
+        }
+
+        public BlockPos getPos() {
+            return pos;
+        }
+
+        /**
+         * Total world time of the grave creation
+         */
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        /**
+         * Owner's UUID or an empty string
+         */
+        public String getOwner() {
+            return owner;
+        }
+
+        public int getGraveType() {
+            return graveType;
+        }
+
+        public boolean isPetGrave() {
+            EnumGraveType type = EnumGraves.getById(graveType).getGraveType();
+            return type == EnumGraveType.DOG_STATUE || type == EnumGraveType.CAT_STATUE || type == EnumGraveType.HORSE_STATUE;
+        }
+
+        public int getItemsCount() {
+            return itemsCount;
+        }
+
+        /**
+         * Size of the saved grave data in bytes
+         */
+        public int getSize() {
+            return size;
+        }
+
+        private NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+            nbt.setInteger("Dimension", dimension);
+            nbt.setInteger("X", pos.getX());
+            nbt.setInteger("Y", pos.getY());
+            nbt.setInteger("Z", pos.getZ());
+            nbt.setLong("CreationTime", creationTime);
+            nbt.setString("Owner", owner);
+            nbt.setInteger("Type", graveType);
+            nbt.setInteger("ItemsCount", itemsCount);
+            nbt.setInteger("Size", size);
+            return nbt;
+        }
+
+        private static GraveEntry readFromNBT(NBTTagCompound nbt) {
+            GraveEntry entry = new GraveEntry(nbt.getInteger("Dimension"),
+                    new BlockPos(nbt.getInteger("X"), nbt.getInteger("Y"), nbt.getInteger("Z")), nbt.getLong("CreationTime"));
+            entry.owner = nbt.getString("Owner");
+            entry.graveType = nbt.getInteger("Type");
+            entry.itemsCount = nbt.getInteger("ItemsCount");
+            entry.size = nbt.getInteger("Size");
+            entry.isSizeOutdated = entry.size == 0;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import nightkosh.gravestone.config.Config;
+import nightkosh.gravestone.core.logger.GSLogger;
+import nightkosh.gravestone.tileentity.TileEntityGraveStone;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GraveStone mod
+ *
+ * Walks over the indexed graves of each world and checks graves in loaded chunks.
+ * Empty graves are removed (if it is enabled) and index entries without graves are dropped.
+ * Amount of checked graves per tick is limited by the config, each grave is checked once per pass.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class GravesSweeper {
+
+    /**
+     * Minimal interval between passes in ticks
+     */
+    private static final int PASS_INTERVAL = 200;
+
+    private static final Map<Integer, Sweep> SWEEPS = new HashMap<>();
+
+    public static void onWorldTick(World world) {
+        SWEEPS.computeIfAbsent(world.provider.getDimension(), dimension -> new Sweep()).tick(world);
+    }
+
+    public static void onWorldUnload(World world) {
+        SWEEPS.remove(world.provider.getDimension());
+    }
+
+    private static void checkGrave(World world, BlockPos pos) {
+        TileEntity tileEntity = world.getTileEntity(pos);
+        if (tileEntity instanceof TileEntityGraveStone) {
+            TileEntityGraveStone grave = (TileEntityGraveStone) tileEntity;
+            if (Config.removeEmptyGraves && !grave.isSwordGrave() && grave.isEmpty()) {
+                if (Config.showGravesRemovingMessages) {
+                    GSLogger.logInfoGrave("Remove empty grave at " + pos.getX() + "/" + pos.getY() + "/" + pos.getZ());
+                }
+
+                world.removeTileEntity(pos);
+                world.setBlockToAir(pos);
+            }
+        } else {
+            GravesIndex.get(world).removeGrave(world, pos);
+        }
+    }
+
+    private static class Sweep {
+        private final Deque<BlockPos> graves = new ArrayDeque<>();
+        private long nextPassTime = 0;
+
+        private void tick(World world) {
+            if (graves.isEmpty()) {
+                if (world.getTotalWorldTime() < nextPassTime) {
+                    return;
+                }
+                nextPassTime = world.getTotalWorldTime() + PASS_INTERVAL;
+                for (GravesIndex.GraveEntry entry : GravesIndex.get(world).getGraves(world.provider.getDimension())) {
+                    graves.add(entry.getPos());
+                }
+            }
+
+            for (int i = 0; i < Config.gravesSweeperChecksPerTick && !graves.isEmpty(); i++) {
+                BlockPos pos = graves.poll();
+                // graves in not loaded chunks are skipped - chunks must not be loaded by the sweeper
+                if (world.isBlockLoaded(pos)) {
+                    checkGrave(world, pos);
+                }
+            }
+        }
+    }
+}
@@ -13,4 +13,11 @@ public interface IFog {
 
     public default void addFog(World world, BlockPos pos) {
     }
+
+    /**
+     * Graves are not ticking by default - they will be added to the GraveUpdateScheduler only if it returns true
+     */
+    public default boolean isUpdateRequired() {
+        return true;
+    }
 }
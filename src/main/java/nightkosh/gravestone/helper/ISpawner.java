@@ -13,4 +13,11 @@ public interface ISpawner {
 
     public default void setMinDelay() {
     }
+
+    /**
+     * Graves are not ticking by default - they will be added to the GraveUpdateScheduler only if it returns true
+     */
+    public default boolean isUpdateRequired() {
+        return true;
+    }
 }
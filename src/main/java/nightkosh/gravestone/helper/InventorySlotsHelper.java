@@ -0,0 +1,75 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.inventory.EntityEquipmentSlot;
+import net.minecraft.item.ItemStack;
+
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Remembers slots of player's items at the death. Dropped item entities hold the same stacks,
+ * so slots can be found by stacks identity when the grave is filled.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class InventorySlotsHelper {
+
+    private static final Map<EntityPlayer, Map<ItemStack, Integer>> SLOTS = new WeakHashMap<>();
+
+    public static void saveSlots(EntityPlayer player) {
+        Map<ItemStack, Integer> slots = new IdentityHashMap<>();
+        for (int slot = 0; slot < player.inventory.getSizeInventory(); slot++) {
+            ItemStack stack = player.inventory.getStackInSlot(slot);
+            if (!stack.isEmpty()) {
+                slots.put(stack, slot);
+            }
+        }
+        SLOTS.put(player, slots);
+    }
+
+    /**
+     * Returns slots of player's items saved at the death or an empty map for other entities
+     */
+    public static Map<ItemStack, Integer> getAndRemoveSlots(Entity entity) {
+        if (entity instanceof EntityPlayer) {
+            Map<ItemStack, Integer> slots = SLOTS.remove(entity);
+            if (slots != null) {
+                return slots;
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Puts stack in to the player's slot if it is empty and stack can be placed there
+     */
+    public static boolean restoreToSlot(EntityPlayer player, ItemStack stack, int slot) {
+        InventoryPlayer inventory = player.inventory;
+        if (slot < 0 || slot >= inventory.getSizeInventory() || !inventory.getStackInSlot(slot).isEmpty()) {
+            return false;
+        }
+        int armorSlot = slot - inventory.mainInventory.size();
+        if (armorSlot >= 0 && armorSlot < inventory.armorInventory.size()) {
+            EntityEquipmentSlot equipmentSlot = getArmorSlot(armorSlot);
+            if (equipmentSlot == null || !stack.getItem().isValidArmor(stack, equipmentSlot, player)) {
+                return false;
+            }
+        }
+        inventory.setInventorySlotContents(slot, stack);
+        return true;
+    }
+
+    private static EntityEquipmentSlot getArmorSlot(int index) {
+        for (EntityEquipmentSlot slot : EntityEquipmentSlot.values()) {
+            if (slot.getSlotType() == EntityEquipmentSlot.Type.ARMOR && slot.getIndex() == index) {
+                return slot;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+import nightkosh.gravestone.core.logger.GSLogger;
+
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Graves which must be created in chunks which were not loaded at the death moment
+ * or which were still queued when their world was saved or unloaded.
+ * They are stored with the world and created at the next tick after their chunk will be loaded.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class PendingGraves extends WorldSavedData {
+
+    private static final String DATA_NAME = "gravestone_pending_graves";
+
+    private final Map<Long, List<PendingGrave>> graves = new HashMap<>();
+    private final Set<Long> loadedChunks = new HashSet<>();
+
+    public PendingGraves() {
+        this(DATA_NAME);
+    }
+
+    public PendingGraves(String name) {
+        super(name);
+    }
+
+    public static PendingGraves get(World world) {
+        MapStorage storage = world.getPerWorldStorage();
+        PendingGraves data = (PendingGraves) storage.getOrLoadData(PendingGraves.class, DATA_NAME);
+        if (data == null) {
+            data = new PendingGraves();
+            storage.setData(DATA_NAME, data);
+        }
+        return data;
+    }
+
+    public void add(BlockPos pos, EnumFacing facing, GraveData graveData) {
+        add(pos, facing, graveData, false);
+    }
+
+    /**
+     * @param isPlaceRequired true if pos is the death position and place for the grave must be found around it
+     */
+    public void add(BlockPos pos, EnumFacing facing, GraveData graveData, boolean isPlaceRequired) {
+        graves.computeIfAbsent(getChunkKey(pos), key -> new ArrayList<>()).add(new PendingGrave(pos, facing, graveData, isPlaceRequired));
+        markDirty();
+    }
+
+    /**
+     * Adds grave which will be created at the next tick if it's chunk is loaded or after loading of the chunk
+     */
+    public void add(World world, BlockPos pos, EnumFacing facing, GraveData graveData, boolean isPlaceRequired) {
+        add(pos, facing, graveData, isPlaceRequired);
+        if (world.isBlockLoaded(pos)) {
+            loadedChunks.add(getChunkKey(pos));
+        }
+    }
+
+    public void onChunkLoad(int chunkX, int chunkZ) {
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        if (graves.containsKey(key)) {
+            loadedChunks.add(key);
+        }
+    }
+
+    /**
+     * Creates graves in the chunks which were loaded since the last tick
+     */
+    public void createGraves(World world) {
+        if (loadedChunks.isEmpty()) {
+            return;
+        }
+        Long[] chunks = loadedChunks.toArray(new Long[loadedChunks.size()]);
+        loadedChunks.clear();
+        for (long key : chunks) {
+            List<PendingGrave> chunkGraves = graves.get(key);
+            if (chunkGraves != null && !chunkGraves.isEmpty() && world.isBlockLoaded(chunkGraves.get(0).pos)) {
+                graves.remove(key);
+                markDirty();
+                for (PendingGrave grave : chunkGraves) {
+                    GSLogger.logInfoGrave("Create postponed " + grave.graveData.getName() + "'s grave");
+                    BlockPos gravePos = grave.isPlaceRequired ? GraveGenerationHelper.findPlaceForGrave(world, grave.pos) : grave.pos;
+                    GraveGenerationHelper.placeGrave(world, grave.pos, world, gravePos, grave.facing, grave.graveData);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void readFromNBT(NBTTagCompound nbt) {
+        graves.clear();
+        NBTTagList list = nbt.getTagList("Graves", 10);
+        for (int i = 0; i < list.tagCount(); i++) {
+            NBTTagCompound graveNBT = list.getCompoundTagAt(i);
+            BlockPos pos = new BlockPos(graveNBT.getInteger("X"), graveNBT.getInteger("Y"), graveNBT.getInteger("Z"));
+            EnumFacing facing = EnumFacing.getHorizontal(graveNBT.getInteger("Facing"));
+            graves.computeIfAbsent(getChunkKey(pos), key -> new ArrayList<>())
+                    .add(new PendingGrave(pos, facing, GraveData.readFromNBT(graveNBT.getCompoundTag("Grave")), graveNBT.getBoolean("FindPlace")));
+        }
+    }
+
+    @Override
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+        NBTTagList list = new NBTTagList();
+        for (List<PendingGrave> chunkGraves : graves.values()) {
+            for (PendingGrave grave : chunkGraves) {
+                NBTTagCompound graveNBT = new NBTTagCompound();
+                graveNBT.setInteger("X", grave.pos.getX());
+                graveNBT.setInteger("Y", grave.pos.getY());
+                graveNBT.setInteger("Z", grave.pos.getZ());
+                graveNBT.setInteger("Facing", grave.facing.getHorizontalIndex());
+                graveNBT.setBoolean("FindPlace", grave.isPlaceRequired);
+                graveNBT.setTag("Grave", grave.graveData.writeToNBT(new NBTTagCompound()));
+                list.appendTag(graveNBT);
+            }
+        }
+        nbt.setTag("Graves", list);
+        return nbt;
+    }
+
+    private static long getChunkKey(BlockPos pos) {
+        return ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+    }
+
+    private static class PendingGrave {
+        private final BlockPos pos;
+        private final EnumFacing facing;
+        private final GraveData graveData;
+        private final boolean isPlaceRequired;
+
+        private PendingGrave(BlockPos pos, EnumFacing facing, GraveData graveData, boolean isPlaceRequired) {
+            this.pos = pos;
+            this.facing = facing;
+            this.graveData = graveData;
+            this.isPlaceRequired = isPlaceRequired;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package nightkosh.gravestone.helper;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Areas in which graves generation is disabled.
+ * Areas of each dimension are stored in a bounding volume hierarchy, so a check doesn't iterate over all areas.
+ * Trees are rebuilt lazily after areas list modification.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class RestrictedAreasIndex {
+
+    private static final int MAX_LEAF_SIZE = 4;
+
+    private static final List<GraveStoneHelper.RestrictedArea> AREAS = new ArrayList<>();
+    private static Map<Integer, Node> trees = Collections.emptyMap();
+    private static boolean isChanged = false;
+
+    public static void setAreas(Collection<GraveStoneHelper.RestrictedArea> areas) {
+        AREAS.clear();
+        AREAS.addAll(areas);
+        isChanged = true;
+    }
+
+    public static void addArea(GraveStoneHelper.RestrictedArea area) {
+        if (area != null) {
+            AREAS.add(area);
+            isChanged = true;
+        }
+    }
+
+    public static boolean removeArea(GraveStoneHelper.RestrictedArea area) {
+        boolean removed = AREAS.remove(area);
+        isChanged |= removed;
+        return removed;
+    }
+
+    public static List<GraveStoneHelper.RestrictedArea> getAreas() {
+        return Collections.unmodifiableList(AREAS);
+    }
+
+    public static boolean isInRestrictedArea(World world, BlockPos pos) {
+        if (isChanged) {
+            rebuild();
+        }
+        if (trees.isEmpty()) {
+            return false;
+        }
+        Node tree = trees.get(world.provider.getDimension());
+        return tree != null && tree.contains(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    private static void rebuild() {
+        Map<Integer, List<GraveStoneHelper.RestrictedArea>> areasByDimension = new HashMap<>();
+        for (GraveStoneHelper.RestrictedArea area : AREAS) {
+            if (!area.isEmpty()) {
+                areasByDimension.computeIfAbsent(area.getDimensionId(), dim -> new ArrayList<>()).add(area);
+            }
+        }
+
+        Map<Integer, Node> newTrees = new HashMap<>(areasByDimension.size());
+        for (Map.Entry<Integer, List<GraveStoneHelper.RestrictedArea>> entry : areasByDimension.entrySet()) {
+            GraveStoneHelper.RestrictedArea[] areas = entry.getValue().toArray(new GraveStoneHelper.RestrictedArea[entry.getValue().size()]);
+            newTrees.put(entry.getKey(), build(areas, 0, areas.length));
+        }
+        trees = newTrees;
+        isChanged = false;
+    }
+
+    private static Node build(GraveStoneHelper.RestrictedArea[] areas, int from, int to) {
+        Node node = new Node();
+        node.minX = node.minY = node.minZ = Integer.MAX_VALUE;
+        node.maxX = node.maxY = node.maxZ = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            BlockPos first = areas[i].getFirstPoint();
+            BlockPos last = areas[i].getLastPoint();
+            node.minX = Math.min(node.minX, first.getX());
+            node.minY = Math.min(node.minY, first.getY());
+            node.minZ = Math.min(node.minZ, first.getZ());
+            node.maxX = Math.max(node.maxX, last.getX());
+            node.maxY = Math.max(node.maxY, last.getY());
+            node.maxZ = Math.max(node.maxZ, last.getZ());
+        }
+
+        if (to - from <= MAX_LEAF_SIZE) {
+            node.areas = Arrays.copyOfRange(areas, from, to);
+        } else {
+            // split by the median of areas centers along the longest axis
+            long sizeX = (long) node.maxX - node.minX;
+            long sizeY = (long) node.maxY - node.minY;
+            long sizeZ = (long) node.maxZ - node.minZ;
+            Comparator<GraveStoneHelper.RestrictedArea> comparator;
+            if (sizeX >= sizeY && sizeX >= sizeZ) {
+                comparator = Comparator.comparingLong(area -> (long) area.getFirstPoint().getX() + area.getLastPoint().getX());
+            } else if (sizeZ >= sizeY) {
+                comparator = Comparator.comparingLong(area -> (long) area.getFirstPoint().getZ() + area.getLastPoint().getZ());
+            } else {
+                comparator = Comparator.comparingLong(area -> (long) area.getFirstPoint().getY() + area.getLastPoint().getY());
+            }
+            Arrays.sort(areas, from, to, comparator);
+            int middle = (from + to) >>> 1;
+            node.left = build(areas, from, middle);
+            node.right = build(areas, middle, to);
+        }
+        return node;
+    }
+
+    private static class Node {
+        private int minX, minY, minZ, maxX, maxY, maxZ;
+        private Node left;
+        private Node right;
+        private GraveStoneHelper.RestrictedArea[] areas;
+
+        private boolean contains(int x, int y, int z) {
+            if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+                return false;
+            }
+            if (areas != null) {
+                for (GraveStoneHelper.RestrictedArea area : areas) {
+                    if (area.isInArea(x, y, z)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return left.contains(x, y, z) || right.contains(x, y, z);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package nightkosh.gravestone.helper;
+
+import java.util.*;
+
+/**
+ * GraveStone mod
+ *
+ * Hierarchical timing wheel. Adding and removing of values is O(1),
+ * advance costs O(1) per time unit plus O(1) per expired value (each value is moved down at most once per level).
+ * Values which are added before the first advance are scheduled at it.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS_COUNT = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS_COUNT - 1;
+    private static final int LEVELS_COUNT = 4;
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS_COUNT)) - 1;
+
+    private final List<List<Timer<T>>> slots = new ArrayList<>(LEVELS_COUNT * SLOTS_COUNT);
+    private final Map<T, Timer<T>> timers = new HashMap<>();
+    /**
+     * Timers which time has come before they were scheduled - slot of the current time can be already processed
+     */
+    private final List<Timer<T>> overdueTimers = new ArrayList<>();
+    private long currentTime = -1;
+
+    public TimingWheel() {
+        for (int i = 0; i < LEVELS_COUNT * SLOTS_COUNT; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Schedules value or changes it's time if it is already scheduled
+     */
+    public void add(T value, long time) {
+        remove(value);
+        Timer<T> timer = new Timer<>(value, time);
+        timers.put(value, timer);
+        if (currentTime >= 0) {
+            schedule(timer);
+        }
+    }
+
+    public void remove(T value) {
+        Timer<T> timer = timers.remove(value);
+        if (timer != null) {
+            // removed timers are skipped when their slot is processed
+            timer.isCancelled = true;
+        }
+    }
+
+    public boolean contains(T value) {
+        return timers.containsKey(value);
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    /**
+     * Moves wheel to the time and returns values which time has come
+     */
+    public List<T> advance(long time) {
+        List<T> expired = new ArrayList<>();
+        if (currentTime < 0) {
+            currentTime = time;
+            for (Timer<T> timer : timers.values()) {
+                schedule(timer);
+            }
+            expireCurrentSlot(expired);
+            expireOverdueTimers(expired);
+            return expired;
+        }
+
+        while (currentTime < time) {
+            currentTime++;
+            // values from the higher levels are moved down when lower levels make a full turn
+            for (int level = 1; level < LEVELS_COUNT; level++) {
+                if ((currentTime & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                cascade(level);
+            }
+            expireCurrentSlot(expired);
+        }
+        expireOverdueTimers(expired);
+        return expired;
+    }
+
+    private void schedule(Timer<T> timer) {
+        if (timer.time <= currentTime) {
+            overdueTimers.add(timer);
+            return;
+        }
+        long time = timer.time;
+        long delay = time - currentTime;
+        if (delay > MAX_DELAY) {
+            // it will be rescheduled when top level slot will be cascaded
+            time = currentTime + MAX_DELAY;
+            delay = MAX_DELAY;
+        }
+        int level = 0;
+        while (level < LEVELS_COUNT - 1 && delay >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        getSlot(level, (int) ((time >> (SLOT_BITS * level)) & SLOT_MASK)).add(timer);
+    }
+
+    private List<Timer<T>> getSlot(int level, int slot) {
+        return slots.get(level * SLOTS_COUNT + slot);
+    }
+
+    private void cascade(int level) {
+        List<Timer<T>> slot = getSlot(level, (int) ((currentTime >> (SLOT_BITS * level)) & SLOT_MASK));
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Timer<T>> timersList = new ArrayList<>(slot);
+        slot.clear();
+        for (Timer<T> timer : timersList) {
+            if (!timer.isCancelled) {
+                schedule(timer);
+            }
+        }
+    }
+
+    private void expireCurrentSlot(List<T> expired) {
+        List<Timer<T>> slot = getSlot(0, (int) (currentTime & SLOT_MASK));
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Timer<T>> timersList = new ArrayList<>(slot);
+        slot.clear();
+        for (Timer<T> timer : timersList) {
+            if (!timer.isCancelled) {
+                if (timer.time <= currentTime) {
+                    timers.remove(timer.value);
+                    expired.add(timer.value);
+                } else {
+                    schedule(timer);
+                }
+            }
+        }
+    }
+
+    private void expireOverdueTimers(List<T> expired) {
+        if (overdueTimers.isEmpty()) {
+            return;
+        }
+        for (Timer<T> timer : overdueTimers) {
+            if (!timer.isCancelled) {
+                timers.remove(timer.value);
+                expired.add(timer.value);
+            }
+        }
+        overdueTimers.clear();
+    }
+
+    private static class Timer<T> {
+        private final T value;
+        private final long time;
+        private boolean isCancelled = false;
+
+        private Timer(T value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
@@ -4,6 +4,9 @@ import nightkosh.gravestone.api.IGraveGeneration;
 import nightkosh.gravestone.api.death_handler.*;
 import nightkosh.gravestone.api.grave_items.*;
 import nightkosh.gravestone.api.grave_position.IGravePositionHandler;
+import nightkosh.gravestone.core.event.DeathHandlerDispatcher;
+import nightkosh.gravestone.helper.GraveStoneHelper;
+import nightkosh.gravestone.helper.RestrictedAreasIndex;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -106,6 +109,7 @@ public class APIGraveGeneration implements IGraveGeneration {
     public void addCustomEntityDeathHandler(ICustomEntityDeathHandler customEntityDeathHandler) {
         if (customEntityDeathHandler != null) {
             CUSTOM_ENTITY_DEATH_HANDLERS.add(customEntityDeathHandler);
+            DeathHandlerDispatcher.invalidate();
         }
     }
 
@@ -117,4 +121,15 @@ public class APIGraveGeneration implements IGraveGeneration {
             GRAVE_POSITION_HANDLERS.add(gravePositionHandler);
         }
     }
+
+    /**
+     * Disables graves generation in the area. Can be called at any time - areas index will be rebuilt at the next check.
+     */
+    public static void addRestrictedArea(int dimensionId, int startX, int startY, int startZ, int endX, int endY, int endZ) {
+        RestrictedAreasIndex.addArea(new GraveStoneHelper.RestrictedArea(dimensionId, startX, startY, startZ, endX, endY, endZ));
+    }
+
+    public static boolean removeRestrictedArea(int dimensionId, int startX, int startY, int startZ, int endX, int endY, int endZ) {
+        return RestrictedAreasIndex.removeArea(new GraveStoneHelper.RestrictedArea(dimensionId, startX, startY, startZ, endX, endY, endZ));
+    }
 }
@@ -9,7 +9,9 @@ import net.minecraft.nbt.NBTTagList;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.world.World;
+import net.minecraftforge.items.ItemHandlerHelper;
 import nightkosh.gravestone.config.Config;
+import nightkosh.gravestone.helper.InventorySlotsHelper;
 import nightkosh.gravestone.tileentity.TileEntityGraveStone;
 
 import java.util.*;
@@ -25,27 +27,97 @@ public class GraveInventory implements IInventory {
     public static final int DEFAULT_INVENTORY_SIZE = 54;
     private TileEntityGraveStone tileEntity;
     protected List<ItemStack> items = new ArrayList<>(DEFAULT_INVENTORY_SIZE);
+    /**
+     * Items are stored as NBT until somebody needs them - most of graves are never opened,
+     * so there is no need to create item stacks at each chunk loading.
+     */
+    private NBTTagList rawItems = null;
+    /**
+     * Saved NBT of each slot or null if slot was changed after the last saving
+     */
+    private List<NBTTagCompound> slotsTags = new ArrayList<>(DEFAULT_INVENTORY_SIZE);
+    /**
+     * Slots of player's items at the death
+     */
+    private Map<ItemStack, Integer> playerSlots = new IdentityHashMap<>();
+    private boolean isChanged = false;
+    /**
+     * Loot state known by the grave - stacks can be emptied in place by containers, so the previous state can't be checked
+     * before the modification
+     */
+    private boolean wasEmpty = true;
 
     public GraveInventory(TileEntityGraveStone tileEntity) {
         this.tileEntity = tileEntity;
     }
 
     public void readItems(NBTTagCompound nbtTag) {
-        NBTTagList ntbItemsList = nbtTag.getTagList("Items", 10);
+        rawItems = nbtTag.getTagList("Items", 10);
         items = new ArrayList<>(DEFAULT_INVENTORY_SIZE);
+        slotsTags = new ArrayList<>(DEFAULT_INVENTORY_SIZE);
+        playerSlots = new IdentityHashMap<>();
+        // loaded items are saved back as they are
+        isChanged = false;
+        wasEmpty = rawItems.hasNoTags();
+    }
+
+    /**
+     * Returns true if items were modified after the last saving
+     */
+    public boolean isChanged() {
+        return isChanged;
+    }
+
+    public void setChanged(boolean isChanged) {
+        this.isChanged = isChanged;
+    }
 
-        for (int i = 0; i < ntbItemsList.tagCount(); ++i) {
-            items.add(new ItemStack(ntbItemsList.getCompoundTagAt(i)));
+    /**
+     * Creates item stacks from the stored NBT if it was not done yet
+     */
+    protected List<ItemStack> getItems() {
+        if (rawItems != null) {
+            NBTTagList ntbItemsList = rawItems;
+            rawItems = null;
+            for (int i = 0; i < ntbItemsList.tagCount(); ++i) {
+                NBTTagCompound nbt = ntbItemsList.getCompoundTagAt(i);
+                ItemStack stack = new ItemStack(nbt);
+                items.add(stack);
+                slotsTags.add(nbt);
+                if (nbt.hasKey("PlayerSlot")) {
+                    playerSlots.put(stack, nbt.getInteger("PlayerSlot"));
+                }
+            }
         }
+        return items;
+    }
+
+    public boolean isDecoded() {
+        return rawItems == null;
     }
 
     public void saveItems(NBTTagCompound nbtTag) {
+        if (rawItems != null) {
+            // items were not changed since loading
+            nbtTag.setTag("Items", rawItems);
+            return;
+        }
         NBTTagList ntbList = new NBTTagList();
 
-        for (ItemStack stack : items) {
-            if (stack != null && stack != ItemStack.EMPTY) {
-                NBTTagCompound nbt = new NBTTagCompound();
-                stack.writeToNBT(nbt);
+        for (int slot = 0; slot < items.size(); slot++) {
+            ItemStack stack = items.get(slot);
+            if (stack != null && !stack.isEmpty()) {
+                // only changed slots are serialized again
+                NBTTagCompound nbt = (slot < slotsTags.size()) ? slotsTags.get(slot) : null;
+                if (nbt == null) {
+                    nbt = new NBTTagCompound();
+                    stack.writeToNBT(nbt);
+                    Integer playerSlot = playerSlots.get(stack);
+                    if (playerSlot != null) {
+                        nbt.setInteger("PlayerSlot", playerSlot);
+                    }
+                    setSlotTag(slot, nbt);
+                }
                 ntbList.appendTag(nbt);
             }
         }
@@ -53,28 +125,97 @@ public class GraveInventory implements IInventory {
         nbtTag.setTag("Items", ntbList);
     }
 
+    private void setSlotTag(int slot, NBTTagCompound nbt) {
+        while (slotsTags.size() <= slot) {
+            slotsTags.add(null);
+        }
+        slotsTags.set(slot, nbt);
+    }
+
+    private void onSlotChanged(int slot) {
+        setSlotTag(slot, null);
+        onChanged();
+    }
+
+    /**
+     * Notifies the grave about loot modification
+     */
+    private void onChanged() {
+        isChanged = true;
+        boolean isEmpty = isEmpty();
+        boolean isLootStateChanged = wasEmpty != isEmpty;
+        wasEmpty = isEmpty;
+        tileEntity.onInventoryChanged(isLootStateChanged);
+    }
+
+    /**
+     * Returns true if there are no items in the grave. Looted slots stay in the list as empty stacks.
+     */
     @Override
     public boolean isEmpty() {
-        return items.isEmpty();
+        return rawItems != null ? rawItems.hasNoTags() : getItemsCount() == 0;
+    }
+
+    /**
+     * Returns count of not empty stacks
+     */
+    public int getItemsCount() {
+        if (rawItems != null) {
+            return rawItems.tagCount();
+        }
+        int count = 0;
+        for (ItemStack stack : items) {
+            if (stack != null && !stack.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
     }
 
     public void addInventoryContent(ItemStack stack) {
         if (stack != null && stack != ItemStack.EMPTY) {
+            List<ItemStack> items = getItems();
             items.add(stack);
+            onSlotChanged(items.size() - 1);
+        }
+    }
+
+    /**
+     * Merges stack with the equal stacks which are already stored in the grave
+     */
+    public void addCompactedInventoryContent(ItemStack stack) {
+        if (stack != null && stack != ItemStack.EMPTY && !stack.isEmpty()) {
+            if (stack.isStackable()) {
+                List<ItemStack> items = getItems();
+                for (int slot = 0; slot < items.size(); slot++) {
+                    ItemStack storedStack = items.get(slot);
+                    if (storedStack.getCount() < storedStack.getMaxStackSize() && ItemHandlerHelper.canItemStacksStack(storedStack, stack)) {
+                        int count = Math.min(stack.getCount(), storedStack.getMaxStackSize() - storedStack.getCount());
+                        storedStack.grow(count);
+                        stack.shrink(count);
+                        onSlotChanged(slot);
+                        if (stack.isEmpty()) {
+                            return;
+                        }
+                    }
+                }
+            }
+            addInventoryContent(stack);
         }
     }
 
     @Override
     public int getSizeInventory() {
-        return items.size();
+        return rawItems != null ? rawItems.tagCount() : items.size();
     }
 
     public int getSizeInventoryForGui() {
-        return (items.size() > DEFAULT_INVENTORY_SIZE) ? items.size() : DEFAULT_INVENTORY_SIZE;
+        return Math.max(getSizeInventory(), DEFAULT_INVENTORY_SIZE);
     }
 
     @Override
     public ItemStack getStackInSlot(int slot) {
+        List<ItemStack> items = getItems();
         if (slot < items.size()) {
             return items.get(slot);
         }
@@ -89,6 +230,7 @@ public class GraveInventory implements IInventory {
                 setInventorySlotContents(slot, ItemStack.EMPTY);
             } else {
                 stack = stack.splitStack(amount);
+                onSlotChanged(slot);
                 if (stack.getCount() == 0) {
                     setInventorySlotContents(slot, ItemStack.EMPTY);
                 }
@@ -108,8 +250,13 @@ public class GraveInventory implements IInventory {
 
     @Override
     public void setInventorySlotContents(int slot, ItemStack stack) {
+        List<ItemStack> items = getItems();
         if (slot < items.size()) {
-            this.items.set(slot, stack);
+            ItemStack oldStack = items.set(slot, stack);
+            if (oldStack != stack) {
+                playerSlots.remove(oldStack);
+            }
+            onSlotChanged(slot);
         }
     }
 
@@ -121,9 +268,12 @@ public class GraveInventory implements IInventory {
         return 64;
     }
 
+    /**
+     * Slots changes are tracked by the inventory methods - here only the chunk is marked as modified
+     */
     @Override
     public void markDirty() {
-
+        tileEntity.markDirty();
     }
 
     @Override
@@ -164,7 +314,11 @@ public class GraveInventory implements IInventory {
 
     @Override
     public void clear() {
+        rawItems = null;
         this.items.clear();
+        this.slotsTags.clear();
+        this.playerSlots.clear();
+        onChanged();
     }
 
     @Override
@@ -188,6 +342,16 @@ public class GraveInventory implements IInventory {
      * @param items Saving items
      */
     public void setItems(List<ItemStack> items) {
+        setItems(items, Collections.emptyMap());
+    }
+
+    /**
+     * Set items as grave loot
+     *
+     * @param items       Saving items
+     * @param playerSlots Slots of the items in player's inventory
+     */
+    public void setItems(List<ItemStack> items, Map<ItemStack, Integer> playerSlots) {
         if (items != null) {
             int savedItems;
             if (Config.graveItemsCount == 100) {
@@ -199,7 +363,15 @@ public class GraveInventory implements IInventory {
 
             for (ItemStack item : items) {
                 if (item != null && item != ItemStack.EMPTY && savedItems > 0) {
-                    addInventoryContent(item);
+                    if (Config.compactGravesItems) {
+                        addCompactedInventoryContent(item);
+                    } else {
+                        addInventoryContent(item);
+                    }
+                    Integer playerSlot = playerSlots.get(item);
+                    if (playerSlot != null && !item.isEmpty()) {
+                        this.playerSlots.put(item, playerSlot);
+                    }
                     savedItems--;
                 } else {
                     dropItem(item, tileEntity.getWorld(), tileEntity.getPos());
@@ -250,7 +422,7 @@ public class GraveInventory implements IInventory {
      * @param slot Item slot number
      */
     public void dropItem(int slot) {
-        dropItem(items.get(slot), tileEntity.getWorld(), tileEntity.getPos());
+        dropItem(getItems().get(slot), tileEntity.getWorld(), tileEntity.getPos());
     }
 
     public void dropItem(ItemStack stack) {
@@ -261,11 +433,53 @@ public class GraveInventory implements IInventory {
      * Drop all holding items
      */
     public void dropAllItems() {
-        items.forEach(this::dropItem);
+        getItems().forEach(this::dropItem);
         items.clear();
+        slotsTags.clear();
+        playerSlots.clear();
+        onChanged();
     }
 
+    /**
+     * Moves all items in to the player's inventory.
+     * Items are returned in to their slots at the death if these slots are empty, other items are placed in to any free slots.
+     * Items which don't fit stay in the grave.
+     */
+    public void restoreItems(EntityPlayer player) {
+        List<ItemStack> items = getItems();
+        for (int slot = 0; slot < items.size(); slot++) {
+            ItemStack stack = items.get(slot);
+            Integer playerSlot = playerSlots.get(stack);
+            if (playerSlot != null && !stack.isEmpty() && InventorySlotsHelper.restoreToSlot(player, stack, playerSlot)) {
+                setInventorySlotContents(slot, ItemStack.EMPTY);
+            }
+        }
+
+        for (int slot = 0; slot < items.size(); slot++) {
+            ItemStack stack = items.get(slot);
+            if (stack != null && !stack.isEmpty()) {
+                int count = stack.getCount();
+                player.inventory.addItemStackToInventory(stack);
+                if (stack.isEmpty()) {
+                    setInventorySlotContents(slot, ItemStack.EMPTY);
+                } else if (stack.getCount() != count) {
+                    setInventorySlotContents(slot, stack);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns copies of the stored items - grave must be modified only by the inventory methods,
+     * so changes are saved and sent to clients
+     */
     public List<ItemStack> getGraveContent() {
-        return items;
+        List<ItemStack> content = new ArrayList<>();
+        for (ItemStack stack : getItems()) {
+            if (stack != null && !stack.isEmpty()) {
+                content.add(stack.copy());
+            }
+        }
+        return Collections.unmodifiableList(content);
     }
 }
\ No newline at end of file
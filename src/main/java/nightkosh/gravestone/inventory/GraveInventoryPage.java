@@ -0,0 +1,142 @@
+package nightkosh.gravestone.inventory;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.text.ITextComponent;
+
+/**
+ * GraveStone mod
+ *
+ * Part of the grave inventory which is shown in the grave GUI.
+ * Container slots are bound to the page, so only items of the visible page are sent to the player.
+ *
+ * @author NightKosh
+ * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
+ */
+public class GraveInventoryPage implements IInventory {
+
+    private final GraveInventory inventory;
+    private final int pageSize;
+    private int page = 0;
+
+    public GraveInventoryPage(GraveInventory inventory, int pageSize) {
+        this.inventory = inventory;
+        this.pageSize = pageSize;
+    }
+
+    public GraveInventory getGraveInventory() {
+        return inventory;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = Math.max(0, Math.min(page, getPagesCount() - 1));
+    }
+
+    public int getPagesCount() {
+        return Math.max(1, (inventory.getSizeInventory() + pageSize - 1) / pageSize);
+    }
+
+    private int getGraveSlot(int slot) {
+        return page * pageSize + slot;
+    }
+
+    @Override
+    public int getSizeInventory() {
+        return pageSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return inventory.isEmpty();
+    }
+
+    @Override
+    public ItemStack getStackInSlot(int slot) {
+        return inventory.getStackInSlot(getGraveSlot(slot));
+    }
+
+    @Override
+    public ItemStack decrStackSize(int slot, int amount) {
+        return inventory.decrStackSize(getGraveSlot(slot), amount);
+    }
+
+    @Override
+    public ItemStack removeStackFromSlot(int slot) {
+        return inventory.removeStackFromSlot(getGraveSlot(slot));
+    }
+
+    @Override
+    public void setInventorySlotContents(int slot, ItemStack stack) {
+        inventory.setInventorySlotContents(getGraveSlot(slot), stack);
+    }
+
+    @Override
+    public int getInventoryStackLimit() {
+        return inventory.getInventoryStackLimit();
+    }
+
+    @Override
+    public void markDirty() {
+        inventory.markDirty();
+    }
+
+    @Override
+    public boolean isUsableByPlayer(EntityPlayer player) {
+        return inventory.isUsableByPlayer(player);
+    }
+
+    @Override
+    public void openInventory(EntityPlayer player) {
+        inventory.openInventory(player);
+    }
+
+    @Override
+    public void closeInventory(EntityPlayer player) {
+        inventory.closeInventory(player);
+    }
+
+    @Override
+    public boolean isItemValidForSlot(int slot, ItemStack stack) {
+        return inventory.isItemValidForSlot(getGraveSlot(slot), stack);
+    }
+
+    @Override
+    public int getField(int id) {
+        return 0;
+    }
+
+    @Override
+    public void setField(int id, int value) {
+
+    }
+
+    @Override
+    public int getFieldCount() {
+        return 0;
+    }
+
+    @Override
+    public void clear() {
+
+    }
+
+    @Override
+    public String getName() {
+        return inventory.getName();
+    }
+
+    @Override
+    public boolean hasCustomName() {
+        return inventory.hasCustomName();
+    }
+
+    @Override
+    public ITextComponent getDisplayName() {
+        return inventory.getDisplayName();
+    }
+}
@@ -14,6 +14,19 @@ public class GraveStoneDeathText {
     private String deathText = "";
     private String killerName = "";
     private boolean isLocalized = false;
+    /**
+     * Amount of deaths which items are stored in the grave
+     */
+    private int deathsCount = 1;
+    private boolean isChanged = false;
+    private TileEntityGrave tileEntity;
+
+    public GraveStoneDeathText() {
+    }
+
+    public GraveStoneDeathText(TileEntityGrave tileEntity) {
+        this.tileEntity = tileEntity;
+    }
 
     public void readText(NBTTagCompound nbtTag) {
         if (nbtTag.hasKey("isLocalized")) {
@@ -27,6 +40,7 @@ public class GraveStoneDeathText {
         } else {
             deathText = nbtTag.getString("DeathText");
         }
+        deathsCount = nbtTag.hasKey("DeathsCount") ? nbtTag.getInteger("DeathsCount") : 1;
     }
 
     public void saveText(NBTTagCompound nbtTag) {
@@ -39,6 +53,9 @@ public class GraveStoneDeathText {
         }
 
         nbtTag.setBoolean("isLocalized", isLocalized);
+        if (deathsCount > 1) {
+            nbtTag.setInteger("DeathsCount", deathsCount);
+        }
     }
 
     public boolean isLocalized() {
@@ -46,7 +63,21 @@ public class GraveStoneDeathText {
     }
 
     public void setLocalized() {
-        isLocalized = true;
+        if (!isLocalized) {
+            isLocalized = true;
+            onChanged();
+        }
+    }
+
+    /**
+     * Returns true if text was modified after the last saving
+     */
+    public boolean isChanged() {
+        return isChanged;
+    }
+
+    public void setChanged(boolean isChanged) {
+        this.isChanged = isChanged;
     }
 
     public String getName() {
@@ -62,15 +93,43 @@ public class GraveStoneDeathText {
     }
 
     public void setName(String name) {
-        this.name = (name == null) ? "" : name;
+        name = (name == null) ? "" : name;
+        if (!this.name.equals(name)) {
+            this.name = name;
+            onChanged();
+        }
     }
 
     public void setDeathText(String text) {
-        deathText = (text == null) ? "" : text;
+        text = (text == null) ? "" : text;
+        if (!deathText.equals(text)) {
+            deathText = text;
+            onChanged();
+        }
     }
 
     public void setKillerName(String name) {
-        killerName = (name == null) ? "" : name;
+        name = (name == null) ? "" : name;
+        if (!killerName.equals(name)) {
+            killerName = name;
+            onChanged();
+        }
+    }
+
+    public int getDeathsCount() {
+        return deathsCount;
+    }
+
+    public void addDeath() {
+        deathsCount++;
+        onChanged();
+    }
+
+    private void onChanged() {
+        isChanged = true;
+        if (tileEntity != null) {
+            tileEntity.onDataChanged(true);
+        }
     }
 
 }
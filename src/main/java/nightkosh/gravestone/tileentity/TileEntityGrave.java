@@ -1,5 +1,6 @@
 package nightkosh.gravestone.tileentity;
 
+import net.minecraft.block.state.IBlockState;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SPacketUpdateTileEntity;
@@ -18,18 +19,26 @@ import java.util.Random;
 public abstract class TileEntityGrave extends TileEntityBase {
 
     protected GraveInventory inventory;
-    protected GraveStoneDeathText deathText = new GraveStoneDeathText();//TODO is required ????
+    protected GraveStoneDeathText deathText = new GraveStoneDeathText(this);//TODO is required ????
     protected boolean isEditable = true;
     protected boolean isEnchanted = false;
     protected boolean isMossy = false;
     protected int graveType = 0;
     protected int age = -1;
+    /**
+     * Grave's part of the saved NBT. Graves are rarely changed after creation,
+     * so it is reused at each chunk saving until something is changed.
+     */
+    private NBTTagCompound savedData = null;
 
     public TileEntityGrave() {
     }
 
     public void setGraveType(int graveType) {
-        this.graveType = graveType;
+        if (this.graveType != graveType) {
+            this.graveType = graveType;
+            onDataChanged(true);
+        }
     }
 
     public int getGraveTypeNum() {
@@ -42,6 +51,7 @@ public abstract class TileEntityGrave extends TileEntityBase {
 
     public void setInventory(GraveInventory inventory) {
         this.inventory = inventory;
+        onDataChanged(true);
     }
 
     public GraveStoneDeathText getDeathTextComponent() {
@@ -50,6 +60,7 @@ public abstract class TileEntityGrave extends TileEntityBase {
 
     public void setDeathTextComponent(GraveStoneDeathText deathText) {
         this.deathText = deathText;
+        onDataChanged(true);
     }
 
     public int getAge() {
@@ -57,11 +68,15 @@ public abstract class TileEntityGrave extends TileEntityBase {
     }
 
     public void setAge(int age) {
-        this.age = age;
+        if (this.age != age) {
+            this.age = age;
+            onDataChanged(true);
+        }
     }
 
     protected void setRandomAge() {
         age = 10 + (new Random()).nextInt(100);
+        onDataChanged(true);
     }
 
     public boolean isEditable() {
@@ -73,7 +88,10 @@ public abstract class TileEntityGrave extends TileEntityBase {
     }
 
     public void setEnchanted(boolean isEnchanted) {
-        this.isEnchanted = isEnchanted;
+        if (this.isEnchanted != isEnchanted) {
+            this.isEnchanted = isEnchanted;
+            onDataChanged(true);
+        }
     }
 
     public boolean isMossy() {
@@ -81,7 +99,10 @@ public abstract class TileEntityGrave extends TileEntityBase {
     }
 
     public void setMossy(boolean isMossy) {
-        this.isMossy = isMossy;
+        if (this.isMossy != isMossy) {
+            this.isMossy = isMossy;
+            onDataChanged(true);
+        }
     }
 
     /**
@@ -99,9 +120,8 @@ public abstract class TileEntityGrave extends TileEntityBase {
     public void readFromNBT(NBTTagCompound nbtTag) {
         super.readFromNBT(nbtTag);
 
-        graveType = nbtTag.getInteger("Type");
-        isEnchanted = nbtTag.getBoolean("Enchanted");
-        isMossy = nbtTag.getBoolean("Mossy");
+        readSyncData(nbtTag);
+        invalidateSavedData();
     }
 
     /**
@@ -111,6 +131,79 @@ public abstract class TileEntityGrave extends TileEntityBase {
     public NBTTagCompound writeToNBT(NBTTagCompound nbtTag) {
         nbtTag = super.writeToNBT(nbtTag);
 
+        if (isDataChanged()) {
+            savedData = writeGraveData(new NBTTagCompound());
+            deathText.setChanged(false);
+            if (inventory != null) {
+                inventory.setChanged(false);
+            }
+            onSavedDataChanged(savedData);
+        }
+        // cached tags are copied - chunk compound can be modified by other mods or at chunk writing in other thread,
+        // copying is still much cheaper than serialization of item stacks
+        for (String key : savedData.getKeySet()) {
+            nbtTag.setTag(key, savedData.getTag(key).copy());
+        }
+
+        return nbtTag;
+    }
+
+    /**
+     * Writes all grave's data which must be saved with the world
+     */
+    protected NBTTagCompound writeGraveData(NBTTagCompound nbtTag) {
+        return writeSyncData(nbtTag);
+    }
+
+    /**
+     * Called when saved data was serialized again after modification
+     */
+    protected void onSavedDataChanged(NBTTagCompound savedData) {
+    }
+
+    /**
+     * Must be called after each modification of saved data.
+     * Marks the chunk as modified and, if data which is required on client side was changed,
+     * sends the grave to the players which are watching it.
+     *
+     * @param isSyncRequired true if some of the fields written by writeSyncData was changed
+     */
+    protected void onDataChanged(boolean isSyncRequired) {
+        invalidateSavedData();
+        if (this.hasWorld() && !this.getWorld().isRemote) {
+            this.markDirty();
+            if (isSyncRequired) {
+                IBlockState state = this.getWorld().getBlockState(this.pos);
+                this.getWorld().notifyBlockUpdate(this.pos, state, state, 2);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached NBT without marking the grave as modified - used at loading
+     */
+    protected void invalidateSavedData() {
+        savedData = null;
+    }
+
+    protected boolean isDataChanged() {
+        return savedData == null || deathText.isChanged() || (inventory != null && inventory.isChanged());
+    }
+
+    /**
+     * Reads the part of the grave which is required on client side (appearance and death text)
+     */
+    protected void readSyncData(NBTTagCompound nbtTag) {
+        graveType = nbtTag.getInteger("Type");
+        isEnchanted = nbtTag.getBoolean("Enchanted");
+        isMossy = nbtTag.getBoolean("Mossy");
+    }
+
+    /**
+     * Writes the part of the grave which is required on client side.
+     * Grave loot must not be written here - it is sent only to players which open the grave inventory.
+     */
+    protected NBTTagCompound writeSyncData(NBTTagCompound nbtTag) {
         nbtTag.setInteger("Type", graveType);
         nbtTag.setBoolean("Enchanted", isEnchanted);
         nbtTag.setBoolean("Mossy", isMossy);
@@ -118,6 +211,13 @@ public abstract class TileEntityGrave extends TileEntityBase {
         return nbtTag;
     }
 
+    /**
+     * Writes the data which is sent to clients - sync data and state which is required only on client side
+     */
+    protected NBTTagCompound writeClientData(NBTTagCompound nbtTag) {
+        return writeSyncData(nbtTag);
+    }
+
     /**
      * Called when you receive a TileEntityData packet for the location this
      * TileEntity is currently in. On the client, the NetworkManager will always
@@ -129,17 +229,25 @@ public abstract class TileEntityGrave extends TileEntityBase {
      */
     @Override
     public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity packet) {
-        readFromNBT(packet.getNbtCompound());
+        readSyncData(packet.getNbtCompound());
     }
 
     @Override
     public SPacketUpdateTileEntity getUpdatePacket() {
-        return new SPacketUpdateTileEntity(this.pos, 1, this.getUpdateTag());
+        return new SPacketUpdateTileEntity(this.pos, 1, this.writeClientData(new NBTTagCompound()));
     }
 
+    /**
+     * Tag which is sent to clients with chunk data
+     */
     @Override
-    public NBTTagCompound getUpdateTag()
-    {
-        return this.writeToNBT(new NBTTagCompound());
+    public NBTTagCompound getUpdateTag() {
+        return this.writeClientData(super.writeToNBT(new NBTTagCompound()));
+    }
+
+    @Override
+    public void handleUpdateTag(NBTTagCompound nbtTag) {
+        super.readFromNBT(nbtTag);
+        readSyncData(nbtTag);
     }
 }
@@ -4,12 +4,14 @@ import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.util.ITickable;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import nightkosh.gravestone.block.enums.EnumGraves;
 import nightkosh.gravestone.config.Config;
 import nightkosh.gravestone.helper.GraveSpawnerHelper;
+import nightkosh.gravestone.helper.GraveUpdateScheduler;
+import nightkosh.gravestone.helper.GravesExpiry;
+import nightkosh.gravestone.helper.GravesIndex;
 import nightkosh.gravestone.helper.GroupOfGravesSpawnerHelper;
 import nightkosh.gravestone.helper.IFog;
 import nightkosh.gravestone.helper.ISpawner;
@@ -22,7 +24,7 @@ import org.apache.commons.lang3.StringUtils;
  * @author NightKosh
  * @license Lesser GNU Public License v3 (http://www.gnu.org/licenses/lgpl.html)
  */
-public class TileEntityGraveStone extends TileEntityGrave implements ITickable, ISpawnerEntity {
+public class TileEntityGraveStone extends TileEntityGrave implements ISpawnerEntity {
 
     public static GraveSpawnerHelper graveSpawnerHelper = new GraveSpawnerHelper();
 
@@ -30,10 +32,15 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
     protected ItemStack flower = null;
     protected String playerId = "";
     protected boolean isPurified = false;
+    protected boolean hasLoot = false;
     protected int spawnerHelperId;
     protected GroupOfGravesSpawnerHelper spawnerHelper;
     protected ISpawner spawner;
     public static IFog fogHandler = new IFog() {
+        @Override
+        public boolean isUpdateRequired() {
+            return false;
+        }
     };
 
     public TileEntityGraveStone() {
@@ -47,13 +54,16 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
         this.setWorld(world);
     }
 
-    @Override
+    /**
+     * Graves are not ticking - it will be called by GraveUpdateScheduler only if spawner or fog requires it
+     */
     public void update() {
         if (spawnerHelperId != 0 && spawnerHelper == null) {
             Entity entity = this.getWorld().getEntityByID(spawnerHelperId);
 
             if (entity instanceof GroupOfGravesSpawnerHelper) {
                 spawnerHelper = (GroupOfGravesSpawnerHelper) entity;
+                invalidateSavedData();
             }
         }
 
@@ -62,6 +72,33 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
         fogHandler.addFog(this.getWorld(), this.pos);
     }
 
+    public boolean isUpdateRequired() {
+        return spawner.isUpdateRequired() || fogHandler.isUpdateRequired();
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        if (isUpdateRequired()) {
+            GraveUpdateScheduler.INSTANCE.add(this);
+        }
+        if (!this.getWorld().isRemote) {
+            GravesIndex.get(this.getWorld()).addGraveIfAbsent(this);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        GraveUpdateScheduler.INSTANCE.remove(this);
+    }
+
+    @Override
+    public void onChunkUnload() {
+        super.onChunkUnload();
+        GraveUpdateScheduler.INSTANCE.remove(this);
+    }
+
     @Override
     public World getIWorld() {
         return getWorld();
@@ -84,10 +121,37 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
     @Override
     public void readFromNBT(NBTTagCompound nbtTag) {
         super.readFromNBT(nbtTag);
-        // age
-        age = nbtTag.getInteger("Age");
         // grave loot
         inventory.readItems(nbtTag);
+
+        isPurified = nbtTag.getBoolean("Purified");
+
+        //spawnerHelper
+        if (nbtTag.hasKey("SpawnerHelperId")) {
+            spawnerHelperId = nbtTag.getInteger("SpawnerHelperId");
+        }
+    }
+
+    @Override
+    protected NBTTagCompound writeGraveData(NBTTagCompound nbtTag) {
+        super.writeGraveData(nbtTag);
+        // grave loot
+        inventory.saveItems(nbtTag);
+
+        nbtTag.setBoolean("Purified", isPurified);
+
+        //spawnerHelper
+        if (haveSpawnerHelper()) {
+            nbtTag.setInteger("SpawnerHelperId", spawnerHelper.getEntityId());
+        }
+        return nbtTag;
+    }
+
+    @Override
+    protected void readSyncData(NBTTagCompound nbtTag) {
+        super.readSyncData(nbtTag);
+        // age
+        age = nbtTag.getInteger("Age");
         // death text
         deathText.readText(nbtTag);
         // sword
@@ -96,22 +160,15 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
         readFlowerInfo(nbtTag);
         // owner
         playerId = nbtTag.getString("PlayerId");
-
-        isPurified = nbtTag.getBoolean("Purified");
-
-        //spawnerHelper
-        if (nbtTag.hasKey("SpawnerHelperId")) {
-            spawnerHelperId = nbtTag.getInteger("SpawnerHelperId");
-        }
+        // client side only - is there something to loot
+        hasLoot = nbtTag.getBoolean("HasLoot");
     }
 
     @Override
-    public NBTTagCompound writeToNBT(NBTTagCompound nbtTag) {
-        nbtTag = super.writeToNBT(nbtTag);
+    protected NBTTagCompound writeSyncData(NBTTagCompound nbtTag) {
+        super.writeSyncData(nbtTag);
         // age
         nbtTag.setInteger("Age", age);
-        // grave loot
-        inventory.saveItems(nbtTag);
         // death text
         deathText.saveText(nbtTag);
         // sword
@@ -120,19 +177,22 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
         writeFlowerInfo(nbtTag);
         // owner
         nbtTag.setString("PlayerId", playerId);
+        return nbtTag;
+    }
 
-        nbtTag.setBoolean("Purified", isPurified);
-
-        //spawnerHelper
-        if (haveSpawnerHelper()) {
-            nbtTag.setInteger("SpawnerHelperId", spawnerHelper.getEntityId());
-        }
+    @Override
+    protected NBTTagCompound writeClientData(NBTTagCompound nbtTag) {
+        super.writeClientData(nbtTag);
+        // client side only - is there something to loot
+        nbtTag.setBoolean("HasLoot", !inventory.isEmpty());
         return nbtTag;
     }
 
     private void readSwordInfo(NBTTagCompound nbtTag) {
         if (nbtTag.hasKey("Sword")) {
             sword = new ItemStack(nbtTag.getCompoundTag("Sword"));
+        } else {
+            sword = null;
         }
     }
 
@@ -147,6 +207,8 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
     private void readFlowerInfo(NBTTagCompound nbtTag) {
         if (nbtTag.hasKey("Flower")) {
             flower = new ItemStack(nbtTag.getCompoundTag("Flower"));
+        } else {
+            flower = null;
         }
     }
 
@@ -158,12 +220,22 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
         }
     }
 
+    private static boolean isSameStack(ItemStack stack1, ItemStack stack2) {
+        if (stack1 == null || stack2 == null) {
+            return stack1 == stack2;
+        }
+        return ItemStack.areItemStacksEqual(stack1, stack2);
+    }
+
     public ItemStack getSword() {
         return this.sword;
     }
 
     public void setSword(ItemStack sword) {
-        this.sword = sword;
+        if (!isSameStack(this.sword, sword)) {
+            this.sword = sword;
+            onDataChanged(true);
+        }
     }
 
     public void dropSword() {
@@ -186,7 +258,10 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
     }
 
     public void setFlower(ItemStack flower) {
-        this.flower = flower;
+        if (!isSameStack(this.flower, flower)) {
+            this.flower = flower;
+            onDataChanged(true);
+        }
     }
 
     public void dropFlower() {
@@ -203,7 +278,31 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
         return EnumGraves.getById(graveType);
     }
 
+    /**
+     * Called by the grave inventory after each modification of the loot
+     *
+     * @param isLootStateChanged true if grave became empty or got some loot - clients must know it
+     */
+    public void onInventoryChanged(boolean isLootStateChanged) {
+        onDataChanged(isLootStateChanged);
+        if (isLootStateChanged && this.hasWorld() && !this.getWorld().isRemote) {
+            GravesIndex.get(this.getWorld()).updateGrave(this);
+        }
+    }
+
+    @Override
+    protected void onSavedDataChanged(NBTTagCompound savedData) {
+        if (this.hasWorld() && !this.getWorld().isRemote) {
+            GravesIndex index = GravesIndex.get(this.getWorld());
+            index.updateGrave(this);
+            index.updateGraveSize(this, savedData);
+        }
+    }
+
     public boolean isEmpty() {
+        if (this.hasWorld() && this.getWorld().isRemote) {
+            return !hasLoot;
+        }
         return inventory.isEmpty();
     }
 
@@ -219,14 +318,18 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
     }
 
     public void setOwner(String playerId) {
-        this.playerId = playerId;
+        if (!StringUtils.equals(this.playerId, playerId)) {
+            this.playerId = playerId;
+            onDataChanged(true);
+        }
     }
 
     public boolean canBeLooted(EntityPlayer player) {
         if (Config.onlyOwnerCanLootGrave) {
             if (player != null) {
                 String playerId = player.getUniqueID().toString();
-                return player.isCreative() || StringUtils.isBlank(this.playerId) || playerId.equals(this.playerId) || inventory.getGraveContent().isEmpty();
+                return player.isCreative() || StringUtils.isBlank(this.playerId) || playerId.equals(this.playerId) || isEmpty() ||
+                        GravesExpiry.areItemsReleased(this);
             }
             return false;
         }
@@ -244,9 +347,12 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
     }
 
     public void setSpawnerHelper(GroupOfGravesSpawnerHelper spawnerHelper) {
-        this.spawnerHelper = spawnerHelper;
-        if (spawnerHelper != null) {
-            this.spawnerHelperId = spawnerHelper.getEntityId();
+        if (this.spawnerHelper != spawnerHelper) {
+            this.spawnerHelper = spawnerHelper;
+            if (spawnerHelper != null) {
+                this.spawnerHelperId = spawnerHelper.getEntityId();
+            }
+            onDataChanged(false);
         }
     }
 
@@ -255,6 +361,9 @@ public class TileEntityGraveStone extends TileEntityGrave implements ITickable,
     }
 
     public void setPurified(boolean isPurified) {
-        this.isPurified = isPurified;
+        if (this.isPurified != isPurified) {
+            this.isPurified = isPurified;
+            onDataChanged(false);
+        }
     }
 }